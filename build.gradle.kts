@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("java-library")
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "oop.project.cli"
@@ -12,10 +13,72 @@ repositories {
 
 dependencies {
     api("com.google.guava:guava:33.1.0-jre")
+    // The command annotations are only read at compile time, by the processor that generates CommandParsers.
+    compileOnly(project(":processor"))
+    annotationProcessor(project(":processor"))
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+// BulkArithmetic uses the incubating Vector API when it is available. Only VectorArithmetic
+// touches it, so it gets a source set of its own: javac warns about incubator modules on every
+// compile that adds one, and the rest of the build stays warning-free. BulkArithmetic loads it
+// by name, and the classes are packaged and run alongside main.
+val vectorModule = listOf("--add-modules", "jdk.incubator.vector")
+
+val vector by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+}
+
+tasks.named<JavaCompile>(vector.compileJavaTaskName) {
+    options.compilerArgs.addAll(vectorModule)
+}
+
+sourceSets.test {
+    runtimeClasspath += vector.output
+}
+
+tasks.jar {
+    from(vector.output)
 }
 
 tasks.test {
     useJUnitPlatform()
+    jvmArgs(vectorModule)
+}
+
+sourceSets.named("jmh") {
+    runtimeClasspath += vector.output
+}
+
+tasks.named<Jar>("jmhJar") {
+    from(vector.output)
+}
+
+jmh {
+    benchmarkMode.set(listOf("thrpt", "avgt"))
+    timeUnit.set("us")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    jvmArgsAppend.set(vectorModule)
+}
+
+// Runs the macro benchmark over a generated traffic mix and fails if throughput, relative to a
+// calibration loop run in the same JVM, falls too far below benchmarks/baseline.properties.
+// Pass -PupdateBaseline to store a new baseline.
+tasks.register<JavaExec>("macroBenchmark") {
+    group = "verification"
+    description = "Checks sustained parse throughput against the stored baseline."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("oop.project.cli.MacroBenchmark")
+    jvmArgs(vectorModule)
+    // One thread keeps the ratio independent of core count and of contention between threads.
+    args("--threads", "1", "--baseline", file("benchmarks/baseline.properties").path)
+    if (project.hasProperty("updateBaseline")) {
+        args("--update-baseline")
+    }
 }
@@ -0,0 +1,6 @@
+plugins {
+    id("java-library")
+}
+
+group = "oop.project.cli"
+version = "1.0-SNAPSHOT"
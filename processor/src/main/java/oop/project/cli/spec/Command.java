@@ -0,0 +1,38 @@
+package oop.project.cli.spec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a record as the result of a command whose arguments are all
+ * {@link Positional}. {@link CommandProcessor} generates its parser at build
+ * time into a {@code CommandParsers} class in the record's package, along with
+ * a {@code CommandHandler} constant named after the record, such as {@code DIV}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Command {
+
+    /**
+     * @return the command base, such as "div".
+     */
+    String value();
+
+    /**
+     * @return true if the command is also accepted as a subcommand of "calc".
+     */
+    boolean calcSubcommand() default false;
+
+    /**
+     * @return the message reported when fewer arguments than components are given.
+     */
+    String missing();
+
+    /**
+     * @return the message reported when more arguments than components are given.
+     */
+    String tooMany();
+
+}
@@ -0,0 +1,25 @@
+package oop.project.cli.spec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Rejects a numeric component that is below zero, once every argument has parsed.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.RECORD_COMPONENT)
+public @interface NonNegative {
+
+    /**
+     * @return the message reported for a negative value, where {@code {}} stands for the value.
+     */
+    String message();
+
+    /**
+     * @return the name of the {@code ErrorCode} reported for a negative value.
+     */
+    String code() default "OUT_OF_RANGE";
+
+}
@@ -0,0 +1,23 @@
+package oop.project.cli.spec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reads a record component from the next whitespace-separated argument. An
+ * {@code int} is parsed as by {@link Integer#parseInt(String)} and a
+ * {@code double} as by {@link Double#parseDouble(String)}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.RECORD_COMPONENT)
+public @interface Positional {
+
+    /**
+     * @return the message reported when the argument is not a valid number, where
+     *         {@code {}} stands for the argument as given.
+     */
+    String invalid();
+
+}
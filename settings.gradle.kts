@@ -1,2 +1,4 @@
 rootProject.name = "CliProject"
 
+include("processor")
+
@@ -0,0 +1,53 @@
+package oop.project.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the vector and scalar column kernels of {@link BulkArithmetic}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BulkArithmeticBenchmark {
+
+    @Param({"1024", "1048576"})
+    public int length;
+
+    @Param({"MUL", "DIV"})
+    public BulkArithmetic.Operation operation;
+
+    private double[] left;
+    private double[] right;
+    private double[] result;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        left = random.doubles(length, -1e6, 1e6).toArray();
+        right = random.doubles(length, 1, 1e6).toArray();
+        result = new double[length];
+    }
+
+    @Benchmark
+    public double[] vector() {
+        BulkArithmetic.apply(operation, left, right, result, length);
+        return result;
+    }
+
+    @Benchmark
+    public double[] scalar() {
+        BulkArithmetic.applyScalar(operation, left, right, result, length);
+        return result;
+    }
+
+}
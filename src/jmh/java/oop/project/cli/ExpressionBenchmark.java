@@ -0,0 +1,53 @@
+package oop.project.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluating a compiled {@link Expression} against compiling the same
+ * text again for every evaluation, and against the full {@code calc} command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExpressionBenchmark {
+
+    @Param({"sqrt(x) * pow(y, 3) / 2", "(x + 1) * (x - 1) / (y * y + 2 * sqrt(16)) - log(x + y) + max(x, y) ^ 2"})
+    public String text;
+
+    private Expression compiled;
+    private String command;
+    private double x;
+
+    @Setup
+    public void setup() {
+        compiled = Expression.compile(text);
+        command = "calc \"" + text + "\" x=4 y=2";
+    }
+
+    @Benchmark
+    public double compileOnce() {
+        x += 1;
+        return compiled.evaluate(x, 2);
+    }
+
+    @Benchmark
+    public double reparse() {
+        x += 1;
+        return ExpressionCompiler.compile(text).evaluate(x, 2);
+    }
+
+    @Benchmark
+    public ParseResult calcCommand() {
+        return Scenarios.tryParse(command);
+    }
+
+}
@@ -0,0 +1,31 @@
+package oop.project.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the BigInteger factorial engine across the table, sequential
+ * binary-split and parallel ranges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FactorialBenchmark {
+
+    @Param({"25", "1000", "20000", "100000"})
+    public int n;
+
+    @Benchmark
+    public BigInteger factorial() {
+        return Factorials.bigValue(n);
+    }
+
+}
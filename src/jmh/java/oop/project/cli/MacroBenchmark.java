@@ -0,0 +1,226 @@
+package oop.project.cli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs a {@link WorkloadGenerator} mix through {@link Scenarios#tryParse(String)}
+ * on several threads for a fixed time and reports sustained throughput, GC
+ * activity and tail latency.
+ *
+ * <p>Absolute throughput depends on the machine, so the regression check does
+ * not compare it directly. A fixed calibration loop, which hashes and copies
+ * the same commands without parsing them, runs in the same JVM on the same
+ * threads, half before and half after the measurement. The check compares
+ * the ratio of parse throughput to calibration throughput, which stays close
+ * between hosts where the absolute numbers do not. Given a baseline file, it
+ * exits with status 1 if the ratio falls more than the baseline's tolerance
+ * below the stored one.
+ *
+ * <p>Options, all optional: {@code --commands <n>} distinct commands to cycle
+ * through, {@code --seed <n>}, {@code --weights add=3,sub=1,...},
+ * {@code --invalid-ratio <0..1>}, {@code --threads <n>}, {@code --warmup <seconds>},
+ * {@code --seconds <seconds>}, {@code --baseline <file>} and
+ * {@code --update-baseline}, which stores the measured ratio, along with the
+ * absolute numbers and a description of the host for reference, instead of
+ * checking it.
+ */
+public final class MacroBenchmark {
+
+    private MacroBenchmark() {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int count = 1_000_000;
+        long seed = 42;
+        var weights = WorkloadGenerator.DEFAULT_WEIGHTS;
+        double invalidRatio = 0.2;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double warmup = 5;
+        double seconds = 10;
+        Path baseline = null;
+        boolean update = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--commands" -> count = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--weights" -> weights = WorkloadGenerator.parseWeights(args[++i]);
+                case "--invalid-ratio" -> invalidRatio = Double.parseDouble(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Double.parseDouble(args[++i]);
+                case "--seconds" -> seconds = Double.parseDouble(args[++i]);
+                case "--baseline" -> baseline = Path.of(args[++i]);
+                case "--update-baseline" -> update = true;
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        var commands = new WorkloadGenerator(seed, weights, invalidRatio).generate(count);
+        System.out.printf("Generated %d commands (seed %d, %.0f%% invalid), running on %d threads%n", count, seed, invalidRatio * 100, threads);
+        run(commands, threads, warmup, new LatencyHistogram(), MacroBenchmark::parse);
+        run(commands, threads, warmup / 2, new LatencyHistogram(), MacroBenchmark::calibrate);
+        long calibrations = run(commands, threads, seconds / 2, new LatencyHistogram(), MacroBenchmark::calibrate);
+        var latency = new LatencyHistogram();
+        long collections = collections();
+        long collectionMillis = collectionMillis();
+        long operations = run(commands, threads, seconds, latency, MacroBenchmark::parse);
+        long gcCount = collections() - collections;
+        long gcMillis = collectionMillis() - collectionMillis;
+        calibrations += run(commands, threads, seconds / 2, new LatencyHistogram(), MacroBenchmark::calibrate);
+        double throughput = operations / seconds;
+        double calibration = calibrations / seconds;
+        double ratio = throughput / calibration;
+
+        System.out.printf("Throughput: %.0f ops/s%n", throughput);
+        System.out.printf("Calibration: %.0f ops/s, ratio %.4f%n", calibration, ratio);
+        System.out.printf("Latency: p50 %.2f us, p99 %.2f us, p99.9 %.2f us, p99.99 %.2f us%n",
+                latency.percentile(0.50) / 1e3, latency.percentile(0.99) / 1e3,
+                latency.percentile(0.999) / 1e3, latency.percentile(0.9999) / 1e3);
+        System.out.printf("GC: %d collections, %d ms%n", gcCount, gcMillis);
+
+        if (baseline != null) {
+            if (update) {
+                writeBaseline(baseline, ratio, throughput, calibration);
+                System.out.printf("Stored baseline ratio of %.4f in %s%n", ratio, baseline);
+            } else if (!checkBaseline(baseline, ratio)) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static long parse(String command) {
+        return Scenarios.tryParse(command).isSuccess() ? 1 : 0;
+    }
+
+    /**
+     * The calibration work: copies the command and hashes its characters, touching the
+     * same memory and allocating like a parse does, but through no code of this project.
+     */
+    private static long calibrate(String command) {
+        long hash = 0xCBF29CE484222325L;
+        for (char c : command.toCharArray()) {
+            hash = (hash ^ c) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Cycles through the commands on every thread for the given time, recording each call's latency.
+     *
+     * @return the total number of commands parsed.
+     */
+    private static long run(String[] commands, int threads, double seconds, LatencyHistogram latency,
+            ToLongFunction<String> operation) throws InterruptedException {
+        var operations = new LongAdder();
+        var checksum = new LongAdder();
+        var done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        for (int t = 0; t < threads; t++) {
+            int offset = t * (commands.length / threads);
+            var thread = new Thread(() -> {
+                long count = 0;
+                long sum = 0;
+                int index = offset;
+                long now = System.nanoTime();
+                while (now < deadline) {
+                    sum += operation.applyAsLong(commands[index]);
+                    long end = System.nanoTime();
+                    latency.record(end - now);
+                    now = end;
+                    count++;
+                    if (++index == commands.length) {
+                        index = 0;
+                    }
+                }
+                operations.add(count);
+                checksum.add(sum);
+                done.countDown();
+            }, "macro-benchmark-" + t);
+            thread.start();
+        }
+        done.await();
+        // Reading the checksum keeps the results live, so the JIT cannot drop the work.
+        if (checksum.sum() == 42) {
+            System.out.print("");
+        }
+        return operations.sum();
+    }
+
+    private static boolean checkBaseline(Path file, double ratio) throws IOException {
+        var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        if (properties.getProperty("ratio") == null) {
+            throw new IllegalStateException("The baseline in " + file + " has no calibration ratio; store a new one with --update-baseline.");
+        }
+        double expected = Double.parseDouble(properties.getProperty("ratio"));
+        double tolerance = Double.parseDouble(properties.getProperty("tolerance", "0.2"));
+        double minimum = expected * (1 - tolerance);
+        if (ratio < minimum) {
+            System.out.printf("REGRESSION: ratio %.4f is below the baseline of %.4f minus %.0f%% (%.4f), recorded on %s%n",
+                    ratio, expected, tolerance * 100, minimum, properties.getProperty("host", "an unknown host"));
+            return false;
+        }
+        System.out.printf("OK: ratio %.4f against a baseline of %.4f (minimum %.4f)%n", ratio, expected, minimum);
+        return true;
+    }
+
+    private static void writeBaseline(Path file, double ratio, double throughput, double calibration) throws IOException {
+        var properties = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+        }
+        properties.setProperty("ratio", String.format("%.4f", ratio));
+        properties.setProperty("throughput", String.format("%.0f", throughput));
+        properties.setProperty("calibration", String.format("%.0f", calibration));
+        properties.setProperty("host", host());
+        properties.putIfAbsent("tolerance", "0.2");
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            properties.store(writer, "Ratio of Scenarios.tryParse throughput to the calibration loop, checked by gradle macroBenchmark."
+                    + " The absolute figures and host are for reference only.");
+        }
+    }
+
+    /**
+     * @return a description of the machine and JVM the baseline was recorded on.
+     */
+    private static String host() {
+        String cpu = System.getProperty("os.arch");
+        try (var lines = Files.lines(Path.of("/proc/cpuinfo"))) {
+            cpu = lines.filter(line -> line.startsWith("model name")).findFirst()
+                    .map(line -> line.substring(line.indexOf(':') + 1).trim()).orElse(cpu);
+        } catch (IOException | RuntimeException e) {
+            // Not Linux: the architecture will do.
+        }
+        return cpu + ", " + Runtime.getRuntime().availableProcessors() + " CPUs, " + System.getProperty("os.name")
+                + ", Java " + Runtime.version();
+    }
+
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+}
@@ -0,0 +1,66 @@
+package oop.project.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing a parsed result with each {@link OutputFormat} against
+ * encoding the result map's {@code toString()}, which is what {@code Main}
+ * printed before output formats existed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OutputFormatBenchmark {
+
+    @Param({"add 1 2", "sub --right 2.0", "div 10 3", "date 2024-01-01", "time 12:00:00", "div 5 0"})
+    public String command;
+
+    private ParseResult result;
+    private final OutputBuffer buffer = new OutputBuffer(1 << 16);
+
+    @Setup
+    public void setup() {
+        result = Scenarios.tryParse(command);
+        if (result.isSuccess()) {
+            result.value();
+        }
+    }
+
+    @Benchmark
+    public byte[] mapToString() {
+        var text = result.isSuccess() ? result.value().toString() : "Unexpected exception: java.lang.IllegalArgumentException, " + result.message();
+        return (text + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int text() {
+        return write(OutputFormat.TEXT);
+    }
+
+    @Benchmark
+    public int json() {
+        return write(OutputFormat.JSON);
+    }
+
+    @Benchmark
+    public int binary() {
+        return write(OutputFormat.BINARY);
+    }
+
+    private int write(OutputFormat format) {
+        buffer.reset();
+        format.write(result, buffer);
+        return buffer.size();
+    }
+
+}
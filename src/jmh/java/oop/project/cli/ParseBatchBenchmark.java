@@ -0,0 +1,62 @@
+package oop.project.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link Scenarios#parseBatch(List, ForkJoinPool)} scales with the
+ * number of cores it is given, over a mix of valid and invalid commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParseBatchBenchmark {
+
+    private static final String[] COMMANDS = {
+        "add 1 2", "sub --left 1.0 --right 2.0", "sqrt 4", "calc add", "date 2024-01-01",
+        "time 12:00:00", "mul 5 4", "div 10 2", "pow 2 3", "fact 5", "log 10",
+        "add one two", "div 5 0", "date 2024-02-30", "time 25:00:00", "log abc",
+    };
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"100000"})
+    public int size;
+
+    private List<String> batch;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(COMMANDS[i % COMMANDS.length]);
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<ParseResult> parseBatch() {
+        return Scenarios.parseBatch(batch, pool);
+    }
+
+}
@@ -0,0 +1,110 @@
+package oop.project.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Benchmarks {@link Scenarios#parse(String)} for every command, using the same
+ * valid and invalid inputs as ScenariosTests. Run with {@code gradle jmh}; the
+ * gc profiler is enabled in the build so allocations per op are reported.
+ */
+public class ScenariosBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ValidInput {
+
+        @Param({
+            "add 1 2",
+            "sub --left 1.0 --right 2.0",
+            "sub --right 2.0",
+            "sqrt 4",
+            "calc add",
+            "date 2024-01-01",
+            "time 12:00:00",
+            "mul 5 4",
+            "div 10 2",
+            "pow 2 3",
+            "fact 5",
+            "log 10",
+        })
+        public String command;
+
+        ByteBuffer buffer;
+
+        @Setup
+        public void setup() {
+            buffer = ByteBuffer.allocateDirect(command.length()).put(command.getBytes(StandardCharsets.US_ASCII)).flip();
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class InvalidInput {
+
+        @Param({
+            "add 1",
+            "add one two",
+            "sub --write 2.0",
+            "sub --right two",
+            "sqrt -1",
+            "calc unknown",
+            "date 20240401",
+            "date 2024-02-30",
+            "time 12:00",
+            "time 25:00:00",
+            "mul two 3",
+            "div 5 0",
+            "pow 3 -2",
+            "fact -1",
+            "log 0",
+            "log abc",
+        })
+        public String command;
+
+    }
+
+    @Benchmark
+    public Map<String, Object> valid(ValidInput input) {
+        return Scenarios.parse(input.command);
+    }
+
+    @Benchmark
+    public ParsedCommand validTyped(ValidInput input) {
+        return Scenarios.parseTyped(input.command);
+    }
+
+    /**
+     * The same valid inputs read in place from a direct buffer through {@link Scenarios#parse(ByteBuffer, int, int)}.
+     */
+    @Benchmark
+    public Map<String, Object> validByteBuffer(ValidInput input) {
+        return Scenarios.parse(input.buffer, 0, input.buffer.limit());
+    }
+
+    @Benchmark
+    public Object invalid(InvalidInput input) {
+        try {
+            return Scenarios.parse(input.command);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    /**
+     * The same invalid inputs through {@link Scenarios#tryParse(String)}, for comparing the cost
+     * of the error path against {@link #invalid(InvalidInput)}.
+     */
+    @Benchmark
+    public Object invalidTryParse(InvalidInput input) {
+        var result = Scenarios.tryParse(input.command);
+        return result.isSuccess() ? result.value() : result.errorCode();
+    }
+
+}
@@ -0,0 +1,55 @@
+package oop.project.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of aggregating a million values with {@link StreamingStatistics},
+ * in one stream and as four partial aggregates merged at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StreamingStatisticsBenchmark {
+
+    private double[] values;
+
+    @Setup
+    public void setup() {
+        values = new Random(42).doubles(1 << 20, -1e6, 1e6).toArray();
+    }
+
+    @Benchmark
+    public StreamingStatistics single() {
+        var statistics = new StreamingStatistics();
+        for (double value : values) {
+            statistics.add(value);
+        }
+        return statistics;
+    }
+
+    @Benchmark
+    public StreamingStatistics merged() {
+        var parts = new StreamingStatistics[4];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new StreamingStatistics();
+        }
+        for (int i = 0; i < values.length; i++) {
+            parts[i & 3].add(values[i]);
+        }
+        var statistics = new StreamingStatistics();
+        for (var part : parts) {
+            statistics.merge(part);
+        }
+        return statistics;
+    }
+
+}
@@ -0,0 +1,174 @@
+package oop.project.cli;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Generates a reproducible stream of command lines across all eleven built-in
+ * commands. Each command is picked with a configurable weight, and then either
+ * a valid or an invalid form of it is produced according to the invalid ratio.
+ * Valid forms use random operands; invalid forms mix random bad operands with
+ * the edge cases covered by ScenariosTests.
+ */
+public final class WorkloadGenerator {
+
+    /**
+     * The default mix, roughly matching production traffic: arithmetic dominates,
+     * dates and times are common, and calc, pow, fact and log are rare.
+     */
+    public static final Map<String, Double> DEFAULT_WEIGHTS = defaultWeights();
+
+    private static final Map<String, Template> TEMPLATES = Map.ofEntries(
+            Map.entry("add", new Template(
+                    random -> "add " + random.nextInt(-10_000, 10_000) + " " + random.nextInt(-10_000, 10_000),
+                    List.of("add 1", "add 1 2 3", "add one two", "add 1.0 2.0", "add 2147483648 1", "add"))),
+            Map.entry("sub", new Template(
+                    random -> random.nextInt(4) == 0
+                            ? "sub --right " + decimal(random)
+                            : "sub --left " + decimal(random) + " --right " + decimal(random),
+                    List.of("sub --left 1.0", "sub --right", "sub --right 2.0 extraneous", "sub --write 2.0", "sub --right two", "sub --left -1 --right 2"))),
+            Map.entry("sqrt", new Template(
+                    random -> "sqrt " + random.nextInt(0, 1_000_000),
+                    List.of("sqrt", "sqrt 4 9", "sqrt -1", "sqrt 2.5", "sqrt four"))),
+            Map.entry("calc", new Template(
+                    random -> "calc " + List.of("add", "sub", "sqrt", "mul", "div").get(random.nextInt(5)),
+                    List.of("calc", "calc unknown", "calc date", "calc add sub"))),
+            Map.entry("date", new Template(
+                    random -> String.format("date %04d-%02d-%02d", random.nextInt(1900, 2100), random.nextInt(1, 13), random.nextInt(1, 29)),
+                    List.of("date 20240401", "date 2024-02-30", "date 2023-02-29", "date 2024-13-01", "date 24-01-01", "date"))),
+            Map.entry("time", new Template(
+                    random -> String.format("time %02d:%02d:%02d", random.nextInt(24), random.nextInt(60), random.nextInt(60)),
+                    List.of("time 12:00", "time 25:00:00", "time 12:60:00", "time 1:2:3", "time noon"))),
+            Map.entry("mul", new Template(
+                    random -> "mul " + random.nextDouble(-1e6, 1e6) + " " + random.nextInt(-100, 100),
+                    List.of("mul two 3", "mul 5", "mul 1 2 3", "mul 5 x"))),
+            Map.entry("div", new Template(
+                    random -> "div " + random.nextDouble(-1e6, 1e6) + " " + random.nextInt(1, 1000),
+                    List.of("div 5 0", "div 5 0.0", "div five 2", "div 5", "div 5 3 2"))),
+            Map.entry("pow", new Template(
+                    random -> "pow " + decimal(random) + " " + random.nextInt(0, 16),
+                    List.of("pow 3 -2", "pow 2 1.5", "pow two 3", "pow 2"))),
+            Map.entry("fact", new Template(
+                    random -> "fact " + random.nextInt(0, 21),
+                    List.of("fact -1", "fact 1.5", "fact five", "fact 2000000"))),
+            Map.entry("log", new Template(
+                    random -> "log " + random.nextDouble(0.001, 1e6),
+                    List.of("log 0", "log -1", "log abc", "log")))
+    );
+
+    private final Random random;
+    private final String[] commands;
+    private final double[] cumulative;
+    private final double invalidRatio;
+
+    /**
+     * @param seed the random seed; the same seed and settings always produce the same commands.
+     * @param weights the relative weight of each command, by name. Commands not listed are never produced.
+     * @param invalidRatio the fraction of commands that should be invalid, between 0 and 1.
+     * @throws IllegalArgumentException if a weight names an unknown command or the settings are out of range.
+     */
+    public WorkloadGenerator(long seed, Map<String, Double> weights, double invalidRatio) {
+        if (invalidRatio < 0 || invalidRatio > 1) {
+            throw new IllegalArgumentException("Invalid ratio must be between 0 and 1.");
+        }
+        this.random = new Random(seed);
+        this.commands = new String[weights.size()];
+        this.cumulative = new double[weights.size()];
+        this.invalidRatio = invalidRatio;
+        double total = 0;
+        int i = 0;
+        // Iterate in name order, so the same weights give the same commands whatever map they came in.
+        for (var entry : new TreeMap<>(weights).entrySet()) {
+            if (!TEMPLATES.containsKey(entry.getKey())) {
+                throw new IllegalArgumentException("Unknown command: " + entry.getKey() + ".");
+            }
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Weight of " + entry.getKey() + " cannot be negative.");
+            }
+            total += entry.getValue();
+            commands[i] = entry.getKey();
+            cumulative[i++] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one command must have a positive weight.");
+        }
+    }
+
+    /**
+     * Parses weights of the form {@code add=3,sub=1}.
+     */
+    public static Map<String, Double> parseWeights(String text) {
+        var weights = new LinkedHashMap<String, Double>();
+        for (var entry : text.split(",")) {
+            var parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Weights must take the form name=weight, got '" + entry + "'.");
+            }
+            weights.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * @return the next command line.
+     */
+    public String next() {
+        double pick = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = 0;
+        while (cumulative[index] <= pick) {
+            index++;
+        }
+        var template = TEMPLATES.get(commands[index]);
+        if (random.nextDouble() >= invalidRatio) {
+            return template.valid.apply(random);
+        }
+        // Half of the invalid commands are fixed edge cases, the rest are valid
+        // commands with one corrupted character, which exercises deeper paths.
+        if (random.nextBoolean()) {
+            return template.invalid.get(random.nextInt(template.invalid.size()));
+        }
+        var valid = template.valid.apply(random).toCharArray();
+        int at = commands[index].length() + 1 + random.nextInt(valid.length - commands[index].length() - 1);
+        valid[at] = "x-.:/ ".charAt(random.nextInt(6));
+        return new String(valid);
+    }
+
+    /**
+     * @return the next {@code count} command lines.
+     */
+    public String[] generate(int count) {
+        var lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = next();
+        }
+        return lines;
+    }
+
+    private static String decimal(Random random) {
+        return random.nextInt(0, 1000) + "." + random.nextInt(0, 100);
+    }
+
+    private static Map<String, Double> defaultWeights() {
+        var weights = new LinkedHashMap<String, Double>();
+        weights.put("add", 20.0);
+        weights.put("sub", 15.0);
+        weights.put("mul", 15.0);
+        weights.put("div", 15.0);
+        weights.put("date", 10.0);
+        weights.put("time", 10.0);
+        weights.put("sqrt", 5.0);
+        weights.put("calc", 4.0);
+        weights.put("pow", 3.0);
+        weights.put("fact", 2.0);
+        weights.put("log", 1.0);
+        return Collections.unmodifiableMap(weights);
+    }
+
+    private record Template(Function<Random, String> valid, List<String> invalid) {}
+
+}
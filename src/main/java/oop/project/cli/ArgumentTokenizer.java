@@ -0,0 +1,400 @@
+package oop.project.cli;
+
+/**
+ * A cursor over a command line that scans the input once, without regular
+ * expressions or intermediate arrays. Every command handler reads its
+ * arguments through this class. The input can be any {@link CharSequence},
+ * so a line held in a buffer is only copied token by token, as it is read.
+ */
+public final class ArgumentTokenizer {
+
+    private final CharSequence input;
+    private final int end;
+    private int position;
+    private int arguments = -1;
+    private CommandRegistry registry;
+
+    private ArgumentTokenizer(CharSequence input, int start, int end) {
+        this.input = input;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * Creates a tokenizer over the given input, ignoring leading and trailing
+     * characters the same way {@link String#trim()} does.
+     *
+     * @param input the command line to scan.
+     * @return a tokenizer positioned at the start of the trimmed input.
+     */
+    static ArgumentTokenizer of(CharSequence input) {
+        int start = 0;
+        int end = input.length();
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return new ArgumentTokenizer(input, start, end);
+    }
+
+    /**
+     * Reads the command base, which ends at the first space character, and
+     * looks it up in the registry without copying it out of the input. The
+     * cursor is left just past that space, at the start of the arguments.
+     *
+     * @param registry the registry to dispatch against.
+     * @return the handler for the command base, or null if it is unknown.
+     */
+    CommandHandler command(CommandRegistry registry) {
+        int start = position;
+        while (position < end && input.charAt(position) != ' ') {
+            position++;
+        }
+        var handler = registry.lookup(input, start, position);
+        if (position < end) {
+            position++;
+        }
+        arguments = position;
+        this.registry = registry;
+        return handler;
+    }
+
+    /**
+     * @return the registry the command was dispatched against.
+     */
+    CommandRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Reads the next whitespace-separated token.
+     *
+     * @return the next token, or null if there are no tokens left.
+     */
+    public String next() {
+        skipSeparators();
+        if (position == end) {
+            return null;
+        }
+        int start = position;
+        while (position < end && !isWhitespace(input.charAt(position))) {
+            position++;
+        }
+        return text(start, position);
+    }
+
+    /**
+     * Like {@link #next()}, but only moves past the token instead of copying it,
+     * so a handler can parse it in place with {@link #parseInt(int, int)} or
+     * {@link #parseDoubleBits(int, int)} and only call {@link #text(int, int)} to
+     * report a failure.
+     *
+     * @return the start of the token, which ends at {@link #mark()}, or -1 if there are no tokens left.
+     */
+    int nextToken() {
+        skipSeparators();
+        if (position == end) {
+            return -1;
+        }
+        int start = position;
+        while (position < end && !isWhitespace(input.charAt(position))) {
+            position++;
+        }
+        return start;
+    }
+
+    /**
+     * Checks whether another token is available without consuming it.
+     *
+     * @return true if there is at least one more token.
+     */
+    public boolean hasNext() {
+        skipSeparators();
+        return position < end;
+    }
+
+    /**
+     * Consumes the remaining input as a single value, trimmed as by {@link String#trim()}.
+     *
+     * @return the remaining input, or an empty string if nothing is left.
+     */
+    public String rest() {
+        int start = position;
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        position = end;
+        return text(start, end);
+    }
+
+    /**
+     * Like {@link #rest()}, but only moves past the remaining input instead of copying it.
+     *
+     * @return the start of the remaining input, trimmed, which ends at {@link #mark()}.
+     */
+    int skipRest() {
+        int start = position;
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        position = end;
+        return start;
+    }
+
+    /**
+     * Like {@link #rest()}, but returns a view of the input rather than a copy
+     * when the input is not a {@link String}.
+     *
+     * @return the remaining input, trimmed.
+     */
+    CharSequence restSequence() {
+        int start = position;
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        position = end;
+        return input.subSequence(start, end);
+    }
+
+    /**
+     * Skips any whitespace at the cursor.
+     */
+    void skipWhitespace() {
+        while (position < end && isWhitespace(input.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * Skips the whitespace between tokens. At the start of the arguments this
+     * skips everything {@link String#trim()} would, since the argument list is
+     * trimmed as a whole before it is split.
+     */
+    private void skipSeparators() {
+        if (position == arguments) {
+            while (position < end && input.charAt(position) <= ' ') {
+                position++;
+            }
+        } else {
+            skipWhitespace();
+        }
+    }
+
+    /**
+     * Consumes exactly one whitespace character.
+     *
+     * @return true if a whitespace character was consumed.
+     */
+    boolean skipWhitespaceChar() {
+        if (position < end && isWhitespace(input.charAt(position))) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the given literal if the input continues with it.
+     *
+     * @param literal the text to match at the cursor.
+     * @return true if the literal matched and was consumed.
+     */
+    boolean consume(String literal) {
+        if (end - position < literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (input.charAt(position + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        position += literal.length();
+        return true;
+    }
+
+    /**
+     * Reads an unsigned decimal number of the form {@code digits[.digits]}.
+     *
+     * @return the start of the number, which ends at {@link #mark()}, or -1 if the cursor is not at a digit.
+     */
+    int decimal() {
+        int start = position;
+        position = skipDigits(position);
+        if (position == start) {
+            return -1;
+        }
+        if (position + 1 < end && input.charAt(position) == '.' && isDigit(input.charAt(position + 1))) {
+            position = skipDigits(position + 1);
+        }
+        return start;
+    }
+
+    /**
+     * Checks whether part of the input, trimmed as by {@link String#trim()}, is
+     * exactly one number in the form read by {@link #decimal()}.
+     */
+    boolean isDecimal(int start, int end) {
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int digits = skipDigits(start, end);
+        if (digits == start) {
+            return false;
+        }
+        if (digits + 1 < end && input.charAt(digits) == '.' && isDigit(input.charAt(digits + 1))) {
+            digits = skipDigits(digits + 1, end);
+        }
+        return digits == end;
+    }
+
+    /**
+     * Parses part of the input as by {@link Integer#parseInt(String)}, without copying it.
+     *
+     * @return the value, or {@link NumberParser#INVALID_INT} if the text is not a valid int.
+     */
+    long parseInt(int start, int end) {
+        return NumberParser.parseInt(input, start, end);
+    }
+
+    /**
+     * Parses part of the input as by {@link Double#parseDouble(String)}, without copying it.
+     *
+     * @return the bits of the value, or {@link NumberParser#INVALID_DOUBLE} if the text is not a valid double.
+     */
+    long parseDoubleBits(int start, int end) {
+        return NumberParser.parseDoubleBits(input, start, end);
+    }
+
+    /**
+     * @return the current cursor position, for use with {@link #reset(int)}.
+     */
+    int mark() {
+        return position;
+    }
+
+    /**
+     * Moves the cursor back to a position returned by {@link #mark()}.
+     *
+     * @param mark the position to return to.
+     */
+    void reset(int mark) {
+        position = mark;
+    }
+
+    /**
+     * @return true if the cursor has reached the end of the input.
+     */
+    boolean atEnd() {
+        return position == end;
+    }
+
+    /**
+     * Checks whether the unread input contains the given literal.
+     *
+     * @param literal the text to search for.
+     * @return true if the literal occurs in the unread input.
+     */
+    boolean contains(String literal) {
+        if (input instanceof String string) {
+            int index = string.indexOf(literal, position);
+            return index >= 0 && index + literal.length() <= end;
+        }
+        int mark = position;
+        try {
+            for (; position + literal.length() <= end; position++) {
+                if (consume(literal)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            position = mark;
+        }
+    }
+
+    /**
+     * Checks whether the unread input contains a flag surrounded by whitespace,
+     * such as {@code " --write "}, exactly as the regular expression
+     * {@code .*\s--\w+\s.*} matches it. The {@code .} does not match line
+     * terminators, so the whitespace around the flag may be one, but there may
+     * be none anywhere else in the input.
+     *
+     * @return true if such a flag is found.
+     */
+    boolean containsEmbeddedFlag() {
+        int firstTerminator = end;
+        int lastTerminator = -1;
+        for (int i = position; i < end; i++) {
+            if (isLineTerminator(input.charAt(i))) {
+                firstTerminator = Math.min(firstTerminator, i);
+                lastTerminator = i;
+            }
+        }
+        for (int i = position; i + 3 < end && i <= firstTerminator; i++) {
+            if (!isWhitespace(input.charAt(i)) || input.charAt(i + 1) != '-' || input.charAt(i + 2) != '-') {
+                continue;
+            }
+            int j = i + 3;
+            while (j < end && isWordChar(input.charAt(j))) {
+                j++;
+            }
+            if (j > i + 3 && j < end && isWhitespace(input.charAt(j)) && j >= lastTerminator) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the unread input exactly as given, without trimming it or moving the cursor.
+     */
+    CharSequence remaining() {
+        return input.subSequence(position, end);
+    }
+
+    /**
+     * Copies part of the input, such as a token to quote in an error message.
+     */
+    String text(int start, int end) {
+        return input.subSequence(start, end).toString();
+    }
+
+    private int skipDigits(int index) {
+        return skipDigits(index, end);
+    }
+
+    private int skipDigits(int index, int end) {
+        while (index < end && isDigit(input.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Matches the regex class {@code \s}.
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * @return true for the characters that {@code .} in a regular expression does not match.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return isDigit(c) || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_';
+    }
+
+}
@@ -0,0 +1,50 @@
+package oop.project.cli;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A read-only view of a range of a byte buffer as characters, one per byte.
+ * It is meant for ASCII command lines; other bytes are read as ISO-8859-1.
+ * The view reads the buffer with absolute indices and never copies it,
+ * except when {@link #toString()} is called.
+ */
+final class AsciiSequence implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    AsciiSequence(ByteBuffer buffer, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, buffer.limit());
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        Objects.checkIndex(index, length);
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        return new AsciiSequence(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        var bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+}
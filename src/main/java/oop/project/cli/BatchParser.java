@@ -0,0 +1,70 @@
+package oop.project.cli;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses many independent commands at once, splitting the work across a
+ * fork-join pool. Results are written into an array by index, so they come
+ * back in input order.
+ */
+final class BatchParser {
+
+    /**
+     * Batches smaller than this are parsed on the calling thread, since forking
+     * costs more than it saves.
+     */
+    static final int SEQUENTIAL_THRESHOLD = 1024;
+
+    private BatchParser() {}
+
+    static List<ParseResult> parse(List<String> commands, ForkJoinPool pool) {
+        var input = commands.toArray(new String[0]);
+        var results = new ParseResult[input.length];
+        if (input.length < SEQUENTIAL_THRESHOLD || pool.getParallelism() == 1) {
+            parseRange(input, results, 0, input.length);
+        } else {
+            int grain = Math.max(SEQUENTIAL_THRESHOLD / 4, input.length / (pool.getParallelism() * 8));
+            pool.invoke(new Task(input, results, 0, input.length, grain));
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    private static void parseRange(String[] input, ParseResult[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = Scenarios.tryParse(input[i]);
+        }
+    }
+
+    private static final class Task extends RecursiveAction {
+
+        private final String[] input;
+        private final ParseResult[] results;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        Task(String[] input, ParseResult[] results, int from, int to, int grain) {
+            this.input = input;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                parseRange(input, results, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Task(input, results, from, middle, grain), new Task(input, results, middle, to, grain));
+        }
+
+    }
+
+}
@@ -0,0 +1,257 @@
+package oop.project.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Applies one arithmetic operation to a stream of number pairs, one pair per
+ * line. Lines are read in blocks and parsed into primitive columns, the
+ * operation is applied to a whole column at a time, and results are written
+ * in input order. Column kernels use the {@code jdk.incubator.vector} API
+ * when that module is present and a scalar loop otherwise.
+ *
+ * <p>Each input line produces exactly one output line: the result, or
+ * {@code ERROR <code> <message>} if the row is invalid. Rows are validated
+ * with the same rules as the single-command form of each operation.
+ */
+public final class BulkArithmetic {
+
+    static final int BLOCK_SIZE = 1 << 14;
+
+    /**
+     * The vector kernels, or null if they are not in use. They need the incubator
+     * module to be resolved, e.g. with {@code --add-modules jdk.incubator.vector},
+     * and can be turned off with {@code -Doop.project.cli.vector=false}.
+     */
+    private static final Kernel VECTOR = loadVectorKernel();
+
+    /**
+     * True if the vector kernels are in use.
+     */
+    static final boolean VECTORIZED = VECTOR != null;
+
+    public enum Operation {
+        ADD, SUB, MUL, DIV;
+
+        /**
+         * @param name the command name, such as {@code mul}.
+         * @return the matching operation.
+         * @throws IllegalArgumentException if the name is not add, sub, mul or div.
+         */
+        public static Operation of(String name) {
+            return switch (name) {
+                case "add" -> ADD;
+                case "sub" -> SUB;
+                case "mul" -> MUL;
+                case "div" -> DIV;
+                default -> throw new IllegalArgumentException("Unknown bulk operation: " + name + ". Valid operations are: add, sub, mul, or div.");
+            };
+        }
+    }
+
+    /**
+     * The number of rows processed and how many of them were rejected.
+     */
+    public record Summary(long rows, long errors) {}
+
+    /**
+     * An implementation of {@link #apply}, such as the vector kernels.
+     */
+    interface Kernel {
+        void apply(Operation operation, double[] left, double[] right, double[] result, int length);
+    }
+
+    private BulkArithmetic() {}
+
+    /**
+     * Loads {@code VectorArithmetic} by name, so that this class links and runs without
+     * the incubator module, and is compiled without it.
+     */
+    private static Kernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty() || "false".equals(System.getProperty("oop.project.cli.vector"))) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName("oop.project.cli.VectorArithmetic").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads number pairs until EOF and writes one result or error line for each.
+     *
+     * @param operation the operation to apply.
+     * @param reader the source of rows.
+     * @param writer where results are written; it is not flushed.
+     * @return how many rows were processed and rejected.
+     */
+    public static Summary run(Operation operation, BufferedReader reader, Writer writer) throws IOException {
+        var block = new Block();
+        long rows = 0;
+        long errors = 0;
+        while (true) {
+            block.clear();
+            String line;
+            while (block.size < BLOCK_SIZE && (line = reader.readLine()) != null) {
+                block.add(operation, line);
+            }
+            if (block.size == 0) {
+                return new Summary(rows, errors);
+            }
+            apply(operation, block.left, block.right, block.result, block.valid);
+            errors += block.write(operation, writer);
+            rows += block.size;
+        }
+    }
+
+    /**
+     * Applies an operation element-wise, writing {@code left[i] op right[i]} to {@code result[i]}.
+     *
+     * @param length the number of elements to process.
+     */
+    public static void apply(Operation operation, double[] left, double[] right, double[] result, int length) {
+        if (VECTOR != null) {
+            VECTOR.apply(operation, left, right, result, length);
+        } else {
+            applyScalar(operation, left, right, result, length);
+        }
+    }
+
+    static void applyScalar(Operation operation, double[] left, double[] right, double[] result, int length) {
+        switch (operation) {
+            case ADD -> {
+                for (int i = 0; i < length; i++) {
+                    result[i] = left[i] + right[i];
+                }
+            }
+            case SUB -> {
+                for (int i = 0; i < length; i++) {
+                    result[i] = left[i] - right[i];
+                }
+            }
+            case MUL -> {
+                for (int i = 0; i < length; i++) {
+                    result[i] = left[i] * right[i];
+                }
+            }
+            case DIV -> {
+                for (int i = 0; i < length; i++) {
+                    result[i] = left[i] / right[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Validates one row, returning null if it is valid or the failure to report.
+     * The parsed operands are stored through the block.
+     */
+    private static ParseResult parseRow(Operation operation, String line, Block block, int index) {
+        var arguments = ArgumentTokenizer.of(line);
+        int first = arguments.nextToken();
+        int firstEnd = arguments.mark();
+        int second = arguments.nextToken();
+        int secondEnd = arguments.mark();
+        if (second < 0) {
+            return ParseResult.failure(ErrorCode.MISSING_ARGUMENT, "Each row requires exactly two numbers.");
+        }
+        if (arguments.hasNext()) {
+            return ParseResult.failure(ErrorCode.TOO_MANY_ARGUMENTS, "Each row requires exactly two numbers.");
+        }
+        var failure = parseOperand(operation, arguments, first, firstEnd, block.left, index);
+        if (failure == null) {
+            failure = parseOperand(operation, arguments, second, secondEnd, block.right, index);
+        }
+        if (failure == null && operation == Operation.DIV && block.right[index] == 0) {
+            failure = ParseResult.failure(ErrorCode.DIVISION_BY_ZERO, "Divisor cannot be zero.");
+        }
+        return failure;
+    }
+
+    /**
+     * Parses one operand the way the single-command form does: {@code add}
+     * takes integers, {@code sub} takes unsigned decimals, and {@code mul} and
+     * {@code div} take anything {@link Double#parseDouble(String)} accepts.
+     */
+    private static ParseResult parseOperand(Operation operation, ArgumentTokenizer arguments, int start, int end, double[] column, int index) {
+        switch (operation) {
+            case ADD -> {
+                long value = arguments.parseInt(start, end);
+                if (value == NumberParser.INVALID_INT) {
+                    return ParseResult.failure(ErrorCode.INVALID_INTEGER, "'", arguments.text(start, end), "' is not a valid integer.");
+                }
+                column[index] = value;
+            }
+            case SUB -> {
+                if (!arguments.isDecimal(start, end)) {
+                    return ParseResult.failure(ErrorCode.INVALID_FORMAT, "'", arguments.text(start, end), "' is not a valid decimal.");
+                }
+                column[index] = Double.longBitsToDouble(arguments.parseDoubleBits(start, end));
+            }
+            case MUL, DIV -> {
+                long bits = arguments.parseDoubleBits(start, end);
+                if (bits == NumberParser.INVALID_DOUBLE) {
+                    return ParseResult.failure(ErrorCode.INVALID_NUMBER, "'", arguments.text(start, end), "' is not a valid number.");
+                }
+                column[index] = Double.longBitsToDouble(bits);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One block of rows. Valid rows are packed at the front of the columns;
+     * {@code failures} holds null for valid rows and the failure otherwise, in
+     * input order.
+     */
+    private static final class Block {
+
+        final double[] left = new double[BLOCK_SIZE];
+        final double[] right = new double[BLOCK_SIZE];
+        final double[] result = new double[BLOCK_SIZE];
+        final ParseResult[] failures = new ParseResult[BLOCK_SIZE];
+        int size;
+        int valid;
+
+        void clear() {
+            size = 0;
+            valid = 0;
+        }
+
+        void add(Operation operation, String line) {
+            var failure = parseRow(operation, line, this, valid);
+            failures[size++] = failure;
+            if (failure == null) {
+                valid++;
+            }
+        }
+
+        long write(Operation operation, Writer writer) throws IOException {
+            long errors = 0;
+            int next = 0;
+            for (int i = 0; i < size; i++) {
+                var failure = failures[i];
+                if (failure == null) {
+                    writer.write(format(operation, result[next++]));
+                } else {
+                    errors++;
+                    writer.write("ERROR ");
+                    writer.write(failure.errorCode().name());
+                    writer.write(' ');
+                    writer.write(failure.message());
+                }
+                writer.write('\n');
+            }
+            return errors;
+        }
+
+    }
+
+    private static String format(Operation operation, double value) {
+        // Sums of two ints are exact in a double and print as integers.
+        return operation == Operation.ADD ? Long.toString((long) value) : Double.toString(value);
+    }
+
+}
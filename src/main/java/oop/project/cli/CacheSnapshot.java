@@ -0,0 +1,413 @@
+package oop.project.cli;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A read-only, memory-mapped snapshot of {@link ParseCache} entries, so a
+ * restarted process can start with the results of the command lines it saw
+ * most recently. Opening a snapshot checks it and indexes the entries by key
+ * hash, but an entry is only decoded when its command line is looked up.
+ *
+ * <p>The file is a header of six big-endian ints: a magic number, the format
+ * {@link #VERSION}, a fingerprint of the registry and error codes it was written
+ * against, the entry count, the payload length and the CRC32C of the payload.
+ * Each entry in the payload is an int32 length, then the key's
+ * {@link String#hashCode()}, the key as an int32 length and UTF-8, and the
+ * encoded result. A file that is truncated, fails its checksum, was written
+ * by another version or against other commands, or holds any entry that would
+ * not decode, is rejected as a whole when it is opened, so a lookup never fails.
+ */
+final class CacheSnapshot {
+
+    /**
+     * Changes whenever the layout or the encoding of any result changes.
+     */
+    static final int VERSION = 1;
+
+    private static final int MAGIC = 0x50435348;
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * Results whose encoding is larger than this, such as very large factorials,
+     * are cheaper to recompute than to keep on disk and are left out.
+     */
+    private static final int MAX_ENTRY_SIZE = 1 << 16;
+
+    /**
+     * The smallest possible entry: its length, the key hash, an empty key and a one-byte result.
+     */
+    private static final int MIN_ENTRY_SIZE = 13;
+
+    private static final int ADD = 1;
+    private static final int SUB = 2;
+    private static final int SQRT = 3;
+    private static final int CALC = 4;
+    private static final int DATE = 5;
+    private static final int TIME = 6;
+    private static final int MUL = 7;
+    private static final int DIV = 8;
+    private static final int POW = 9;
+    private static final int FACT = 10;
+    private static final int BIG_FACT = 11;
+    private static final int LOG = 12;
+    private static final int EXPR = 13;
+    private static final int FAILURE = 0xFF;
+
+    private static final ErrorCode[] ERROR_CODES = ErrorCode.values();
+
+    private final ByteBuffer buffer;
+    private final int[] slots;
+    private final int count;
+
+    private CacheSnapshot(ByteBuffer buffer, int[] slots, int count) {
+        this.buffer = buffer;
+        this.slots = slots;
+        this.count = count;
+    }
+
+    /**
+     * Maps and checks a snapshot.
+     *
+     * @param file the snapshot file.
+     * @param registry the registry the cache parses against.
+     * @return the snapshot, or null if the file does not exist.
+     * @throws IOException if the file cannot be read, or is corrupted or incompatible.
+     */
+    static CacheSnapshot open(Path file, CommandRegistry registry) throws IOException {
+        MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size: " + channel.size() + " bytes.");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a cache snapshot.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + ".");
+        }
+        if (buffer.getInt(8) != fingerprint(registry)) {
+            throw new IOException("Snapshot was written for a different set of commands.");
+        }
+        int count = buffer.getInt(12);
+        int length = buffer.getInt(16);
+        if (count < 0 || length != buffer.capacity() - HEADER_SIZE) {
+            throw new IOException("Truncated snapshot.");
+        }
+        if (count > length / MIN_ENTRY_SIZE) {
+            throw new IOException("Snapshot entry count " + count + " does not fit in " + length + " bytes.");
+        }
+        var checksum = new CRC32C();
+        checksum.update(buffer.slice(HEADER_SIZE, length));
+        if ((int) checksum.getValue() != buffer.getInt(20)) {
+            throw new IOException("Snapshot checksum mismatch.");
+        }
+
+        var slots = new int[Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1];
+        int mask = slots.length - 1;
+        int offset = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            int size = offset + 12 <= buffer.capacity() ? buffer.getInt(offset) : -1;
+            if (size < 8 || size > buffer.capacity() - offset - 4 || buffer.getInt(offset + 8) > size - 8 || buffer.getInt(offset + 8) < 0
+                    || !isValid(buffer.slice(offset + 12 + buffer.getInt(offset + 8), size - 8 - buffer.getInt(offset + 8)))) {
+                throw new IOException("Malformed snapshot entry " + i + ".");
+            }
+            int index = mix(buffer.getInt(offset + 4)) & mask;
+            while (slots[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = offset;
+            offset += 4 + size;
+        }
+        if (offset != buffer.capacity()) {
+            throw new IOException("Trailing data in snapshot.");
+        }
+        return new CacheSnapshot(buffer, slots, count);
+    }
+
+    /**
+     * @return the number of entries in the snapshot.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Looks up and decodes the result stored for a command line.
+     *
+     * @return the stored result, or null if the command line is not in the snapshot.
+     */
+    ParseResult lookup(String command) {
+        int offset = find(command);
+        return offset < 0 ? null : decode(buffer.duplicate().position(offset + 12 + buffer.getInt(offset + 8)));
+    }
+
+    private int find(String command) {
+        int hash = command.hashCode();
+        int mask = slots.length - 1;
+        for (int index = mix(hash) & mask; slots[index] != 0; index = (index + 1) & mask) {
+            int offset = slots[index];
+            if (buffer.getInt(offset + 4) == hash && command.equals(key(offset))) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private String key(int offset) {
+        var bytes = new byte[buffer.getInt(offset + 8)];
+        buffer.get(offset + 12, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a snapshot of the given entries, followed by entries of a previous snapshot
+     * that are not among them, up to the limit. Results that cannot be encoded, such as
+     * {@link ParsedCommand.Custom}, are skipped. The file is written next to the target
+     * and moved into place, so readers never see a partial snapshot.
+     *
+     * @return the number of entries written.
+     */
+    static int write(Path file, CommandRegistry registry, Map<String, ParseResult> entries, CacheSnapshot previous, long limit) throws IOException {
+        var payload = new OutputBuffer(1 << 16);
+        int count = 0;
+        for (var entry : entries.entrySet()) {
+            if (count < limit && encode(entry.getKey(), entry.getValue(), payload)) {
+                count++;
+            }
+        }
+        if (previous != null) {
+            for (int offset = HEADER_SIZE; offset < previous.buffer.capacity() && count < limit; ) {
+                int size = previous.buffer.getInt(offset);
+                if (!entries.containsKey(previous.key(offset))) {
+                    var raw = new byte[4 + size];
+                    previous.buffer.get(offset, raw);
+                    payload.write(raw);
+                    count++;
+                }
+                offset += 4 + size;
+            }
+        }
+
+        var bytes = payload.toByteArray();
+        var checksum = new CRC32C();
+        checksum.update(bytes);
+        var header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putInt(VERSION).putInt(fingerprint(registry))
+                .putInt(count).putInt(bytes.length).putInt((int) checksum.getValue())
+                .flip();
+
+        var temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                var buffers = new ByteBuffer[] {header, ByteBuffer.wrap(bytes)};
+                while (buffers[1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return count;
+    }
+
+    /**
+     * Appends one entry, or nothing if the result cannot be stored.
+     *
+     * @return true if the entry was written.
+     */
+    private static boolean encode(String command, ParseResult result, OutputBuffer out) {
+        int start = out.size();
+        out.int32(0).int32(command.hashCode()).int32(0).utf8(command);
+        out.putInt32(start + 8, out.size() - start - 12);
+        if (!encode(result, out) || out.size() - start - 4 > MAX_ENTRY_SIZE) {
+            out.truncate(start);
+            return false;
+        }
+        out.putInt32(start, out.size() - start - 4);
+        return true;
+    }
+
+    private static boolean encode(ParseResult result, OutputBuffer out) {
+        if (!result.isSuccess()) {
+            out.write(FAILURE).write(result.errorCode().ordinal());
+            string(result.message(), out);
+            return true;
+        }
+        var command = result.command();
+        if (command instanceof ParsedCommand.Add add) {
+            out.write(ADD).int32(add.left()).int32(add.right());
+        } else if (command instanceof ParsedCommand.Sub sub) {
+            out.write(SUB).write(sub.hasLeft() ? 1 : 0).int64(bits(sub.left())).int64(bits(sub.right()));
+        } else if (command instanceof ParsedCommand.Sqrt sqrt) {
+            out.write(SQRT).int32(sqrt.number());
+        } else if (command instanceof ParsedCommand.Calc calc) {
+            out.write(CALC);
+            string(calc.subcommand(), out);
+        } else if (command instanceof ParsedCommand.Date date) {
+            out.write(DATE).int64(date.date().toEpochDay());
+        } else if (command instanceof ParsedCommand.Time time) {
+            out.write(TIME).int64(time.time().toNanoOfDay());
+        } else if (command instanceof ParsedCommand.Mul mul) {
+            out.write(MUL).int64(bits(mul.multiplicand())).int64(bits(mul.multiplier()));
+        } else if (command instanceof ParsedCommand.Div div) {
+            out.write(DIV).int64(bits(div.dividend())).int64(bits(div.divisor()));
+        } else if (command instanceof ParsedCommand.Pow pow) {
+            out.write(POW).int64(bits(pow.base())).int32(pow.exponent());
+        } else if (command instanceof ParsedCommand.Fact fact) {
+            out.write(FACT).int32(fact.number()).int64(fact.factorial());
+        } else if (command instanceof ParsedCommand.BigFact fact) {
+            var bytes = fact.factorial().toByteArray();
+            out.write(BIG_FACT).int32(fact.number()).int32(bytes.length).write(bytes);
+        } else if (command instanceof ParsedCommand.Log log) {
+            out.write(LOG).int64(bits(log.number())).int64(bits(log.logarithm()));
+        } else if (command instanceof ParsedCommand.Expr expr) {
+            out.write(EXPR);
+            string(expr.expression(), out);
+            out.int64(bits(expr.value()));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static ParseResult decode(ByteBuffer in) {
+        int kind = in.get() & 0xFF;
+        return switch (kind) {
+            case FAILURE -> ParseResult.failure(ERROR_CODES[in.get()], string(in));
+            case ADD -> ParseResult.success(new ParsedCommand.Add(in.getInt(), in.getInt()));
+            case SUB -> ParseResult.success(new ParsedCommand.Sub(in.get() != 0, in.getDouble(), in.getDouble()));
+            case SQRT -> ParseResult.success(new ParsedCommand.Sqrt(in.getInt()));
+            case CALC -> ParseResult.success(new ParsedCommand.Calc(string(in)));
+            case DATE -> ParseResult.success(new ParsedCommand.Date(LocalDate.ofEpochDay(in.getLong())));
+            case TIME -> ParseResult.success(new ParsedCommand.Time(LocalTime.ofNanoOfDay(in.getLong())));
+            case MUL -> ParseResult.success(new ParsedCommand.Mul(in.getDouble(), in.getDouble()));
+            case DIV -> ParseResult.success(new ParsedCommand.Div(in.getDouble(), in.getDouble()));
+            case POW -> ParseResult.success(new ParsedCommand.Pow(in.getDouble(), in.getInt()));
+            case FACT -> ParseResult.success(new ParsedCommand.Fact(in.getInt(), in.getLong()));
+            case BIG_FACT -> {
+                int number = in.getInt();
+                var bytes = new byte[in.getInt()];
+                in.get(bytes);
+                yield ParseResult.success(new ParsedCommand.BigFact(number, new BigInteger(bytes)));
+            }
+            case LOG -> ParseResult.success(new ParsedCommand.Log(in.getDouble(), in.getDouble()));
+            case EXPR -> ParseResult.success(new ParsedCommand.Expr(string(in), in.getDouble()));
+            default -> throw new IllegalStateException("Unknown snapshot entry kind " + kind + ".");
+        };
+    }
+
+    /**
+     * Checks, without decoding it, that an encoded result fills the buffer exactly and
+     * that {@link #decode} will accept it: a known kind, a known error code, lengths
+     * within the entry, and dates and times within range.
+     */
+    private static boolean isValid(ByteBuffer in) {
+        try {
+            int kind = in.get() & 0xFF;
+            switch (kind) {
+                case FAILURE -> {
+                    if ((in.get() & 0xFF) >= ERROR_CODES.length) {
+                        return false;
+                    }
+                    skipString(in);
+                }
+                case ADD, MUL, DIV, LOG -> in.position(in.position() + (kind == ADD ? 8 : 16));
+                case SUB -> in.position(in.position() + 17);
+                case SQRT -> in.position(in.position() + 4);
+                case POW, FACT -> in.position(in.position() + 12);
+                case CALC -> skipString(in);
+                case DATE -> {
+                    long day = in.getLong();
+                    if (day < LocalDate.MIN.toEpochDay() || day > LocalDate.MAX.toEpochDay()) {
+                        return false;
+                    }
+                }
+                case TIME -> {
+                    long nanos = in.getLong();
+                    if (nanos < 0 || nanos > LocalTime.MAX.toNanoOfDay()) {
+                        return false;
+                    }
+                }
+                case BIG_FACT -> {
+                    in.getInt();
+                    int length = in.getInt();
+                    // BigInteger rejects an empty magnitude.
+                    if (length <= 0) {
+                        return false;
+                    }
+                    in.position(in.position() + length);
+                }
+                case EXPR -> {
+                    skipString(in);
+                    in.position(in.position() + 8);
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return !in.hasRemaining();
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // Reading past the entry, or a position beyond it.
+            return false;
+        }
+    }
+
+    private static void skipString(ByteBuffer in) {
+        int length = in.getInt();
+        in.position(in.position() + length);
+    }
+
+    private static void string(String text, OutputBuffer out) {
+        int start = out.size();
+        out.int32(0).utf8(text);
+        out.putInt32(start, out.size() - start - 4);
+    }
+
+    private static String string(ByteBuffer in) {
+        var bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long bits(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * Identifies what the stored results depend on besides the format: the registered
+     * commands and the error codes, whose ordinals are stored.
+     */
+    private static int fingerprint(CommandRegistry registry) {
+        int hash = registry.names().hashCode();
+        for (var code : ERROR_CODES) {
+            hash = 31 * hash + code.name().hashCode();
+        }
+        return hash;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
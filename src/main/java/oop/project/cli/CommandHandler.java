@@ -0,0 +1,62 @@
+package oop.project.cli;
+
+import java.util.function.Function;
+
+/**
+ * Parses the arguments of one command. Handlers are registered into a
+ * {@link CommandRegistry} by name, either directly or through
+ * {@link java.util.ServiceLoader}, in which case the implementation needs a
+ * public no-argument constructor.
+ */
+public interface CommandHandler {
+
+    /**
+     * @return the command base this handler is dispatched for, such as "add".
+     */
+    String name();
+
+    /**
+     * Parses the arguments that follow the command base.
+     *
+     * @param arguments a cursor positioned at the start of the arguments.
+     * @return the parsed command, or a failure describing why it was rejected.
+     */
+    ParseResult parse(ArgumentTokenizer arguments);
+
+    /**
+     * @return true if this command is also accepted as a subcommand of "calc".
+     */
+    default boolean calcSubcommand() {
+        return false;
+    }
+
+    /**
+     * Creates a handler from a parsing function.
+     *
+     * @param name the command base.
+     * @param calcSubcommand whether the command is accepted by "calc".
+     * @param parser the function that parses the arguments.
+     * @return the handler.
+     */
+    static CommandHandler of(String name, boolean calcSubcommand, Function<ArgumentTokenizer, ParseResult> parser) {
+        return new CommandHandler() {
+
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public ParseResult parse(ArgumentTokenizer arguments) {
+                return parser.apply(arguments);
+            }
+
+            @Override
+            public boolean calcSubcommand() {
+                return calcSubcommand;
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,242 @@
+package oop.project.cli;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * An immutable set of command handlers, keyed by command base. The names are
+ * laid out in a collision-free (perfect) hash table when the registry is
+ * built, so a lookup hashes the base once, probes one slot and compares it,
+ * directly over the input characters and without allocating. If no seed
+ * separates the names within a bounded number of attempts, the registry falls
+ * back to linear probing, where a lookup may compare a few slots instead of one.
+ */
+public final class CommandRegistry {
+
+    private final String[] names;
+    private final CommandHandler[] handlers;
+    private final int seed;
+    private final int mask;
+    private final int probes;
+    private final Set<String> registered;
+    private final String calcSubcommands;
+
+    private CommandRegistry(String[] names, CommandHandler[] handlers, int seed, int probes, Set<String> registered, String calcSubcommands) {
+        this.names = names;
+        this.handlers = handlers;
+        this.seed = seed;
+        this.mask = names.length - 1;
+        this.probes = probes;
+        this.registered = registered;
+        this.calcSubcommands = calcSubcommands;
+    }
+
+    /**
+     * @return a builder for a new registry, initially empty.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds the standard registry: the built-in commands plus every handler
+     * found through {@link ServiceLoader}.
+     *
+     * @return the standard registry.
+     */
+    public static CommandRegistry standard() {
+        return builder().registerBuiltins().registerServices().build();
+    }
+
+    /**
+     * Looks up the handler for the command base in {@code text[start, end)}.
+     *
+     * @return the handler, or null if no command has that name.
+     */
+    public CommandHandler lookup(CharSequence text, int start, int end) {
+        int index = hash(seed, text, start, end);
+        for (int probe = 0; probe < probes; probe++) {
+            int slot = (index + probe) & mask;
+            String name = names[slot];
+            if (name == null) {
+                return null;
+            }
+            if (matches(name, text, start, end)) {
+                return handlers[slot];
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(String name, CharSequence text, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether every name has a slot of its own, so that a lookup probes exactly one slot.
+     */
+    boolean isPerfect() {
+        return probes == 1;
+    }
+
+    /**
+     * Looks up the handler for the given command base.
+     *
+     * @return the handler, or null if no command has that name.
+     */
+    public CommandHandler lookup(String name) {
+        return lookup(name, 0, name.length());
+    }
+
+    /**
+     * @return the names of all registered commands, in registration order.
+     */
+    public Set<String> names() {
+        return registered;
+    }
+
+    /**
+     * @return the sentence listing the commands accepted by "calc", for error messages, such as
+     *         "Valid subcommands are: add, sub, or div."
+     */
+    String calcSubcommands() {
+        return calcSubcommands;
+    }
+
+    /**
+     * FNV-1a over the characters, starting from the seed, followed by a finalizer
+     * that spreads the high bits into the low ones used for the slot. Each
+     * character is mixed into a state that already depends on the seed, so names
+     * that collide under one seed, such as those with equal {@link String#hashCode},
+     * are separated by another.
+     */
+    private static int hash(int seed, CharSequence text, int start, int end) {
+        int h = 0x811C9DC5 ^ seed * 0x9E3779B9;
+        for (int i = start; i < end; i++) {
+            h = (h ^ text.charAt(i)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    public static final class Builder {
+
+        private static final int SEEDS = 1024;
+        private static final int MAX_GROWTH = 3;
+
+        private final Map<String, CommandHandler> handlers = new LinkedHashMap<>();
+
+        private Builder() {}
+
+        /**
+         * Registers a handler under its name.
+         *
+         * @throws IllegalArgumentException if a handler with the same name is already registered.
+         */
+        public Builder register(CommandHandler handler) {
+            if (handlers.putIfAbsent(handler.name(), handler) != null) {
+                throw new IllegalArgumentException("A command named '" + handler.name() + "' is already registered.");
+            }
+            return this;
+        }
+
+        /**
+         * Registers the commands built into {@link Scenarios}, and those generated from the
+         * annotated {@link ParsedCommand} records.
+         */
+        public Builder registerBuiltins() {
+            register(CommandParsers.ADD);
+            register(CommandHandler.of("sub", true, Scenarios::sub));
+            register(CommandParsers.SQRT);
+            register(CommandParsers.MUL);
+            register(CommandParsers.DIV);
+            register(CommandHandler.of("calc", false, Scenarios::calc));
+            register(CommandHandler.of("date", false, Scenarios::date));
+            register(CommandHandler.of("time", false, Scenarios::time));
+            register(CommandParsers.POW);
+            register(CommandHandler.of("fact", false, Scenarios::factorial));
+            register(CommandHandler.of("log", false, Scenarios::logarithm));
+            return this;
+        }
+
+        /**
+         * Registers every {@link CommandHandler} provided through {@link ServiceLoader}.
+         */
+        public Builder registerServices() {
+            for (var handler : ServiceLoader.load(CommandHandler.class)) {
+                register(handler);
+            }
+            return this;
+        }
+
+        /**
+         * Freezes the registered handlers into an immutable registry.
+         */
+        public CommandRegistry build() {
+            var entries = new ArrayList<>(handlers.values());
+            int initial = Integer.highestOneBit(Math.max(1, entries.size()) * 2 - 1) << 1;
+            for (int size = initial; size <= initial << MAX_GROWTH; size <<= 1) {
+                for (int seed = 1; seed <= SEEDS; seed++) {
+                    var registry = tryBuild(entries, size, seed, false);
+                    if (registry != null) {
+                        return registry;
+                    }
+                }
+            }
+            return tryBuild(entries, initial, 1, true);
+        }
+
+        /**
+         * Lays the names out in a table of the given size.
+         *
+         * @param probing whether to resolve collisions by linear probing, rather than give up.
+         * @return the registry, or null if two names collide and probing is off.
+         */
+        private CommandRegistry tryBuild(List<CommandHandler> entries, int size, int seed, boolean probing) {
+            var names = new String[size];
+            var table = new CommandHandler[size];
+            int probes = 1;
+            for (var handler : entries) {
+                var name = handler.name();
+                int index = hash(seed, name, 0, name.length());
+                int probe = 0;
+                while (names[(index + probe) & (size - 1)] != null) {
+                    if (!probing) {
+                        return null;
+                    }
+                    probe++;
+                }
+                names[(index + probe) & (size - 1)] = name;
+                table[(index + probe) & (size - 1)] = handler;
+                probes = Math.max(probes, probe + 1);
+            }
+            var calc = entries.stream().filter(CommandHandler::calcSubcommand).map(CommandHandler::name).toList();
+            var registered = Collections.unmodifiableSet(new LinkedHashSet<>(handlers.keySet()));
+            return new CommandRegistry(names, table, seed, probes, registered, "Valid subcommands are: " + join(calc) + ".");
+        }
+
+        private static String join(List<String> names) {
+            if (names.size() <= 1) {
+                return String.join("", names);
+            }
+            return String.join(", ", names.subList(0, names.size() - 1)) + ", or " + names.get(names.size() - 1);
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package oop.project.cli;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+
+/**
+ * A point-in-time copy of the metrics recorded for one command. Latencies
+ * are in microseconds.
+ */
+public final class CommandStatistics {
+
+    private final String command;
+    private final long calls;
+    private final long successes;
+    private final Map<String, Long> failures;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+
+    @ConstructorProperties({"command", "calls", "successes", "failures", "meanMicros", "p50Micros", "p99Micros"})
+    public CommandStatistics(String command, long calls, long successes, Map<String, Long> failures,
+                             double meanMicros, double p50Micros, double p99Micros) {
+        this.command = command;
+        this.calls = calls;
+        this.successes = successes;
+        this.failures = Map.copyOf(failures);
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * @return the number of failures for each {@link ErrorCode} that occurred.
+     */
+    public Map<String, Long> getFailures() {
+        return failures;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-8s calls=%d successes=%d failures=%s mean=%.2fus p50=%.2fus p99=%.2fus",
+                command, calls, successes, failures, meanMicros, p50Micros, p99Micros);
+    }
+
+}
@@ -0,0 +1,87 @@
+package oop.project.cli;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+
+/**
+ * Hand-written parsers for the fixed-width {@code yyyy-MM-dd} and
+ * {@code HH:mm:ss} formats, which check the digits and ranges in a single
+ * pass over the characters. They accept exactly what the formatters below
+ * accept for inputs of that shape; anything they reject is handed to the
+ * formatters, which decide the outcome and produce the error detail.
+ */
+final class DateTimeParsers {
+
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd").withResolverStyle(ResolverStyle.STRICT);
+    static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private DateTimeParsers() {}
+
+    /**
+     * Parses a date of exactly the form {@code yyyy-MM-dd}, rejecting days that do not exist
+     * (such as 2024-02-30) as {@link ResolverStyle#STRICT} does.
+     *
+     * @return the date, or null if the text is not a valid date of that form.
+     */
+    static LocalDate parseDate(CharSequence text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return null;
+        }
+        int length = month == 2 && isLeapYear(year) ? 29 : DAYS_IN_MONTH[month - 1];
+        return day <= length ? LocalDate.of(year, month, day) : null;
+    }
+
+    /**
+     * Parses a time of exactly the form {@code HH:mm:ss}. As with the default
+     * {@link ResolverStyle#SMART} resolver, 24:00:00 is accepted as midnight.
+     *
+     * @return the time, or null if the text is not a valid time of that form.
+     */
+    static LocalTime parseTime(CharSequence text) {
+        if (text.length() != 8 || text.charAt(2) != ':' || text.charAt(5) != ':') {
+            return null;
+        }
+        int hour = digits(text, 0, 2);
+        int minute = digits(text, 3, 2);
+        int second = digits(text, 6, 2);
+        if (hour < 0 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        if (hour < 24) {
+            return LocalTime.of(hour, minute, second);
+        }
+        return hour == 24 && minute == 0 && second == 0 ? LocalTime.MIDNIGHT : null;
+    }
+
+    /**
+     * Reads {@code count} ASCII digits starting at {@code start}.
+     *
+     * @return their value, or -1 if any of them is not a digit.
+     */
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!ArgumentTokenizer.isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+}
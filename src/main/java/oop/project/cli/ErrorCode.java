@@ -0,0 +1,39 @@
+package oop.project.cli;
+
+/**
+ * Identifies why a command was rejected, so callers can branch on the kind of
+ * failure without inspecting the message.
+ */
+public enum ErrorCode {
+
+    /** The command base is not a known command. */
+    UNKNOWN_COMMAND,
+
+    /** A required argument was not provided. */
+    MISSING_ARGUMENT,
+
+    /** More arguments were provided than the command accepts. */
+    TOO_MANY_ARGUMENTS,
+
+    /** The arguments do not follow the command's syntax. */
+    INVALID_FORMAT,
+
+    /** An argument that must be an integer could not be parsed as one. */
+    INVALID_INTEGER,
+
+    /** An argument that must be a number could not be parsed as one. */
+    INVALID_NUMBER,
+
+    /** A number was parsed but is outside the range the command accepts. */
+    OUT_OF_RANGE,
+
+    /** The divisor of a division was zero. */
+    DIVISION_BY_ZERO,
+
+    /** A date or time has the right format but is not a valid value. */
+    INVALID_VALUE,
+
+    /** The calc subcommand is not one of the valid options. */
+    INVALID_SUBCOMMAND,
+
+}
@@ -0,0 +1,216 @@
+package oop.project.cli;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes the values of the "pow", "sqrt" and "log" commands, which the
+ * parser itself only validates. {@link #DOUBLE} uses the correctly rounded
+ * {@link Math} functions and never touches {@link BigDecimal};
+ * {@link #withPrecision(MathContext)} returns an evaluator that computes
+ * {@link BigDecimal} results to the given precision.
+ *
+ * <p>This is a library API for callers of {@link Scenarios#parseTyped}: the
+ * command line and {@link ParseResult} only parse, and do not evaluate.
+ */
+public final class Evaluator {
+
+    /**
+     * Evaluates in {@code double} arithmetic.
+     */
+    public static final Evaluator DOUBLE = new Evaluator(null);
+
+    /**
+     * ln(2) at each working precision that has been requested so far.
+     */
+    private static final Map<Integer, BigDecimal> LN2 = new ConcurrentHashMap<>();
+
+    private static final int GUARD_DIGITS = 5;
+    private static final int MAX_ITERATIONS = 64;
+
+    private final MathContext mathContext;
+
+    private Evaluator(MathContext mathContext) {
+        this.mathContext = mathContext;
+    }
+
+    /**
+     * @param mathContext the precision and rounding of the results.
+     * @return an evaluator computing {@link BigDecimal} results.
+     */
+    public static Evaluator withPrecision(MathContext mathContext) {
+        if (mathContext.getPrecision() == 0) {
+            throw new IllegalArgumentException("Unlimited precision is not supported.");
+        }
+        return new Evaluator(mathContext);
+    }
+
+    /**
+     * Computes the value of a parsed "pow", "sqrt" or "log" command.
+     *
+     * @param command the parsed command.
+     * @return a {@link Double} for {@link #DOUBLE}, otherwise a {@link BigDecimal}.
+     * @throws IllegalArgumentException if the command has no value to evaluate.
+     */
+    public Number evaluate(ParsedCommand command) {
+        if (command instanceof ParsedCommand.Pow pow) {
+            return mathContext == null ? Math.pow(pow.base(), pow.exponent()) : power(new BigDecimal(pow.base()), pow.exponent());
+        } else if (command instanceof ParsedCommand.Sqrt sqrt) {
+            return mathContext == null ? Math.sqrt(sqrt.number()) : sqrt(BigDecimal.valueOf(sqrt.number()));
+        } else if (command instanceof ParsedCommand.Log log) {
+            return mathContext == null ? log.logarithm() : log(log.number());
+        }
+        throw new IllegalArgumentException("Command has no value to evaluate: " + command);
+    }
+
+    /**
+     * Raises a decimal to a non-negative integer power by repeated squaring, with enough
+     * guard digits that the rounding errors of the intermediate products do not reach the result.
+     */
+    public BigDecimal power(BigDecimal base, int exponent) {
+        var working = working(32 - Integer.numberOfLeadingZeros(exponent));
+        var result = BigDecimal.ONE;
+        while (exponent != 0) {
+            if ((exponent & 1) != 0) {
+                result = result.multiply(base, working);
+            }
+            base = base.multiply(base, working);
+            exponent >>>= 1;
+        }
+        return result.round(mathContext);
+    }
+
+    /**
+     * Computes a square root by Newton iteration, starting from the double estimate so that only
+     * a few iterations are needed to reach the target precision.
+     */
+    public BigDecimal sqrt(BigDecimal value) {
+        if (value.signum() < 0) {
+            throw new ArithmeticException("Square root of a negative number.");
+        }
+        if (value.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        var working = working(0);
+        var two = BigDecimal.valueOf(2);
+        var estimate = value.doubleValue();
+        var root = estimate > 0 && !Double.isInfinite(estimate)
+                ? new BigDecimal(Math.sqrt(estimate))
+                : value.divide(two, working);
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            var next = root.add(value.divide(root, working)).divide(two, working);
+            boolean converged = converged(root, next, working);
+            root = next;
+            if (converged) {
+                break;
+            }
+        }
+        return root.round(mathContext);
+    }
+
+    /**
+     * Computes a natural logarithm. The argument is split into {@code m * 2^k} with m in [1, 2),
+     * so that ln(x) = ln(m) + k ln(2), where ln(m) is found by Newton iteration and ln(2) is a
+     * cached constant.
+     *
+     * <p>Between 1/2 and 3/2 the logarithm is summed directly from its atanh series instead.
+     * Near 1 the Newton step only reaches an absolute precision, and below 1 the split adds
+     * -ln(2) to an ln(m) close to ln(2), so either would cancel most of the digits of a small
+     * result.
+     */
+    public BigDecimal log(double value) {
+        if (!(value > 0) || Double.isInfinite(value)) {
+            throw new ArithmeticException("Logarithm of a non-positive or infinite number.");
+        }
+        if (value > 0.5 && value < 1.5) {
+            return seriesLog(new BigDecimal(value), working(0)).round(mathContext);
+        }
+        int exponent = 0;
+        if (value < Double.MIN_NORMAL) {
+            value *= 0x1p54;
+            exponent -= 54;
+        }
+        exponent += Math.getExponent(value);
+        double mantissa = value / Math.scalb(1.0, Math.getExponent(value));
+
+        var working = working(0);
+        var result = newtonLog(new BigDecimal(mantissa), working);
+        if (exponent != 0) {
+            result = result.add(ln2(working).multiply(BigDecimal.valueOf(exponent), working), working);
+        }
+        return result.round(mathContext);
+    }
+
+    private MathContext working(int extraDigits) {
+        return new MathContext(mathContext.getPrecision() + GUARD_DIGITS + extraDigits, RoundingMode.HALF_EVEN);
+    }
+
+    private static BigDecimal ln2(MathContext working) {
+        return LN2.computeIfAbsent(working.getPrecision(), precision -> newtonLog(BigDecimal.valueOf(2), working));
+    }
+
+    /**
+     * Solves exp(y) = x for y with the Newton step {@code y + x exp(-y) - 1}, starting from the
+     * double logarithm. Each step roughly doubles the number of correct digits.
+     */
+    private static BigDecimal newtonLog(BigDecimal x, MathContext working) {
+        var y = new BigDecimal(Math.log(x.doubleValue()));
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            var next = y.add(x.multiply(exp(y.negate(), working), working), working).subtract(BigDecimal.ONE, working);
+            boolean converged = converged(y, next, working);
+            y = next;
+            if (converged) {
+                break;
+            }
+        }
+        return y;
+    }
+
+    /**
+     * Sums ln(x) = 2 atanh(z) = 2 (z + z^3/3 + z^5/5 + ...) with z = (x - 1) / (x + 1). Every
+     * term has the sign of z, so the sum keeps its relative precision however close x is to 1.
+     */
+    private static BigDecimal seriesLog(BigDecimal x, MathContext working) {
+        var z = x.subtract(BigDecimal.ONE).divide(x.add(BigDecimal.ONE), working);
+        if (z.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        var square = z.multiply(z, working);
+        var sum = z;
+        var power = z;
+        for (int n = 3; ; n += 2) {
+            power = power.multiply(square, working);
+            var term = power.divide(BigDecimal.valueOf(n), working);
+            sum = sum.add(term, working);
+            if (term.abs().compareTo(sum.abs().movePointLeft(working.getPrecision() + 1)) <= 0) {
+                return sum.add(sum);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a Newton step changed the estimate by less than the last working digit.
+     */
+    private static boolean converged(BigDecimal previous, BigDecimal next, MathContext working) {
+        var change = next.subtract(previous).abs();
+        return change.signum() == 0 || change.compareTo(next.abs().movePointLeft(working.getPrecision() - 1)) <= 0;
+    }
+
+    /**
+     * Computes exp(x) for small |x| by its Taylor series.
+     */
+    private static BigDecimal exp(BigDecimal x, MathContext working) {
+        var threshold = BigDecimal.ONE.movePointLeft(working.getPrecision() + 1);
+        var sum = BigDecimal.ONE;
+        var term = BigDecimal.ONE;
+        for (int n = 1; term.abs().compareTo(threshold) > 0; n++) {
+            term = term.multiply(x, working).divide(BigDecimal.valueOf(n), working);
+            sum = sum.add(term, working);
+        }
+        return sum;
+    }
+
+}
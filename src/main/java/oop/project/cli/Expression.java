@@ -0,0 +1,138 @@
+package oop.project.cli;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An arithmetic expression compiled once into a tree of evaluator nodes, so
+ * it can be evaluated repeatedly with different variable values without
+ * parsing it again. Constant subexpressions are folded at compile time.
+ *
+ * <p>Expressions support numbers, variables, parentheses, {@code + - * / %},
+ * right-associative {@code ^}, unary minus, and the functions {@code sqrt},
+ * {@code pow}, {@code log} (natural), {@code exp}, {@code abs}, {@code min}
+ * and {@code max}. Arithmetic follows IEEE 754, so division by zero gives an
+ * infinity and {@code sqrt} of a negative number gives NaN.
+ */
+public final class Expression {
+
+    private static final Cache<String, Expression> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(1024)
+            .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+            .build();
+
+    private final String text;
+    private final List<String> variables;
+    private final Node root;
+
+    Expression(String text, List<String> variables, Node root) {
+        this.text = text;
+        this.variables = List.copyOf(variables);
+        this.root = root;
+    }
+
+    /**
+     * Compiles an expression, reusing the compiled form if the same text was
+     * compiled recently.
+     *
+     * @param text the expression to compile.
+     * @return the compiled expression.
+     * @throws IllegalArgumentException if the expression is not valid.
+     */
+    public static Expression compile(String text) {
+        var expression = CACHE.getIfPresent(text);
+        if (expression == null) {
+            expression = ExpressionCompiler.compile(text);
+            CACHE.put(text, expression);
+        }
+        return expression;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    /**
+     * @return the variable names, in the order their values are passed to {@link #evaluate(double...)}.
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    /**
+     * @return true if the expression has no variables and was folded to a single value.
+     */
+    public boolean isConstant() {
+        return root instanceof Constant;
+    }
+
+    /**
+     * Evaluates the expression with variable values given by position.
+     *
+     * @param values one value per variable, in the order of {@link #variables()}.
+     * @return the value of the expression.
+     * @throws IllegalArgumentException if the number of values does not match the number of variables.
+     */
+    public double evaluate(double... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException("Expected " + variables.size() + " variable values, got " + values.length + ".");
+        }
+        return root.evaluate(values);
+    }
+
+    /**
+     * Evaluates the expression with variable values given by name.
+     *
+     * @param bindings the value of each variable.
+     * @return the value of the expression.
+     * @throws IllegalArgumentException if a variable has no value.
+     */
+    public double evaluate(Map<String, ? extends Number> bindings) {
+        var values = new double[variables.size()];
+        for (int i = 0; i < values.length; i++) {
+            var value = bindings.get(variables.get(i));
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for variable '" + variables.get(i) + "'.");
+            }
+            values[i] = value.doubleValue();
+        }
+        return root.evaluate(values);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * A compiled subexpression, evaluated against the variable values by slot.
+     */
+    @FunctionalInterface
+    interface Node {
+
+        double evaluate(double[] variables);
+
+    }
+
+    record Constant(double value) implements Node {
+
+        @Override
+        public double evaluate(double[] variables) {
+            return value;
+        }
+
+    }
+
+    record Variable(int slot) implements Node {
+
+        @Override
+        public double evaluate(double[] variables) {
+            return variables[slot];
+        }
+
+    }
+
+}
@@ -0,0 +1,249 @@
+package oop.project.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A recursive-descent compiler from expression text to {@link Expression}
+ * nodes. The grammar is:
+ *
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := unary (('*' | '/' | '%') unary)*
+ * unary      := ('-' | '+') unary | power
+ * power      := primary ('^' unary)?
+ * primary    := number | name | name '(' expression (',' expression)* ')' | '(' expression ')'
+ * </pre>
+ *
+ * Every node whose operands are constants is evaluated immediately, so a
+ * compiled tree only contains work that depends on variables.
+ *
+ * <p>Every recursive rule passes through {@code unary}, so it counts the
+ * nesting depth and rejects an expression nested more than {@link #MAX_DEPTH}
+ * levels deep, such as thousands of parentheses or unary signs, before the
+ * recursion can overflow the stack.
+ */
+final class ExpressionCompiler {
+
+    static final int MAX_DEPTH = 256;
+
+    private final String text;
+    private final List<String> variables = new ArrayList<>();
+    private int position;
+    private int depth;
+
+    private ExpressionCompiler(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Compiles an expression without going through the cache.
+     *
+     * @throws IllegalArgumentException if the expression is not valid.
+     */
+    static Expression compile(String text) {
+        var compiler = new ExpressionCompiler(text);
+        var root = compiler.expression();
+        compiler.skipSpaces();
+        if (compiler.position < text.length()) {
+            throw compiler.error("Unexpected '" + text.charAt(compiler.position) + "'");
+        }
+        return new Expression(text, compiler.variables, root);
+    }
+
+    private Expression.Node expression() {
+        var node = term();
+        while (true) {
+            if (accept('+')) {
+                node = binary(node, term(), Double::sum);
+            } else if (accept('-')) {
+                node = binary(node, term(), (a, b) -> a - b);
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Expression.Node term() {
+        var node = unary();
+        while (true) {
+            if (accept('*')) {
+                node = binary(node, unary(), (a, b) -> a * b);
+            } else if (accept('/')) {
+                node = binary(node, unary(), (a, b) -> a / b);
+            } else if (accept('%')) {
+                node = binary(node, unary(), (a, b) -> a % b);
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Expression.Node unary() {
+        if (++depth > MAX_DEPTH) {
+            throw error("Expression nested more than " + MAX_DEPTH + " levels deep");
+        }
+        Expression.Node node;
+        if (accept('-')) {
+            node = unary(unary(), a -> -a);
+        } else if (accept('+')) {
+            node = unary();
+        } else {
+            node = power();
+        }
+        depth--;
+        return node;
+    }
+
+    private Expression.Node power() {
+        var base = primary();
+        return accept('^') ? power(base, unary()) : base;
+    }
+
+    private Expression.Node primary() {
+        skipSpaces();
+        if (accept('(')) {
+            var node = expression();
+            expect(')');
+            return node;
+        }
+        if (position < text.length() && (ArgumentTokenizer.isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+            return number();
+        }
+        if (position < text.length() && Character.isLetter(text.charAt(position))) {
+            int start = position;
+            while (position < text.length() && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+                position++;
+            }
+            var name = text.substring(start, position);
+            return accept('(') ? function(name, start) : variable(name);
+        }
+        throw error(position < text.length() ? "Unexpected '" + text.charAt(position) + "'" : "Unexpected end of expression");
+    }
+
+    private Expression.Node number() {
+        int start = position;
+        while (position < text.length() && (ArgumentTokenizer.isDigit(text.charAt(position)) || text.charAt(position) == '.')) {
+            position++;
+        }
+        if (position < text.length() && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+            int exponent = position++;
+            if (position < text.length() && (text.charAt(position) == '+' || text.charAt(position) == '-')) {
+                position++;
+            }
+            if (position == text.length() || !ArgumentTokenizer.isDigit(text.charAt(position))) {
+                position = exponent;
+            }
+            while (position < text.length() && ArgumentTokenizer.isDigit(text.charAt(position))) {
+                position++;
+            }
+        }
+        long bits = NumberParser.parseDoubleBits(text, start, position);
+        if (bits == NumberParser.INVALID_DOUBLE) {
+            throw error("Invalid number '" + text.substring(start, position) + "'", start);
+        }
+        return new Expression.Constant(Double.longBitsToDouble(bits));
+    }
+
+    private Expression.Node variable(String name) {
+        int slot = variables.indexOf(name);
+        if (slot < 0) {
+            slot = variables.size();
+            variables.add(name);
+        }
+        return new Expression.Variable(slot);
+    }
+
+    private Expression.Node function(String name, int start) {
+        var arguments = new ArrayList<Expression.Node>();
+        if (!accept(')')) {
+            do {
+                arguments.add(expression());
+            } while (accept(','));
+            expect(')');
+        }
+        int arity = switch (name) {
+            case "sqrt", "log", "exp", "abs" -> 1;
+            case "pow", "min", "max" -> 2;
+            default -> throw error("Unknown function '" + name + "'", start);
+        };
+        if (arguments.size() != arity) {
+            throw error("Function '" + name + "' takes " + arity + (arity == 1 ? " argument" : " arguments"), start);
+        }
+        return switch (name) {
+            case "sqrt" -> unary(arguments.get(0), Math::sqrt);
+            case "log" -> unary(arguments.get(0), Math::log);
+            case "exp" -> unary(arguments.get(0), Math::exp);
+            case "abs" -> unary(arguments.get(0), Math::abs);
+            case "pow" -> power(arguments.get(0), arguments.get(1));
+            case "min" -> binary(arguments.get(0), arguments.get(1), Math::min);
+            default -> binary(arguments.get(0), arguments.get(1), Math::max);
+        };
+    }
+
+    /**
+     * Builds a power node, using repeated multiplication for small constant
+     * integer exponents, which is cheaper than {@link Math#pow(double, double)}.
+     */
+    private static Expression.Node power(Expression.Node base, Expression.Node exponent) {
+        if (!(base instanceof Expression.Constant) && exponent instanceof Expression.Constant constant) {
+            double value = constant.value();
+            if (value == 1) {
+                return base;
+            }
+            if (value == 2) {
+                return variables -> {
+                    double b = base.evaluate(variables);
+                    return b * b;
+                };
+            }
+        }
+        return binary(base, exponent, Math::pow);
+    }
+
+    private static Expression.Node unary(Expression.Node operand, DoubleUnaryOperator operator) {
+        if (operand instanceof Expression.Constant constant) {
+            return new Expression.Constant(operator.applyAsDouble(constant.value()));
+        }
+        return variables -> operator.applyAsDouble(operand.evaluate(variables));
+    }
+
+    private static Expression.Node binary(Expression.Node left, Expression.Node right, DoubleBinaryOperator operator) {
+        if (left instanceof Expression.Constant a && right instanceof Expression.Constant b) {
+            return new Expression.Constant(operator.applyAsDouble(a.value(), b.value()));
+        }
+        return variables -> operator.applyAsDouble(left.evaluate(variables), right.evaluate(variables));
+    }
+
+    private boolean accept(char c) {
+        skipSpaces();
+        if (position < text.length() && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private void skipSpaces() {
+        while (position < text.length() && ArgumentTokenizer.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return error(message, position);
+    }
+
+    private IllegalArgumentException error(String message, int at) {
+        return new IllegalArgumentException(message + " at position " + at + ".");
+    }
+
+}
@@ -0,0 +1,118 @@
+package oop.project.cli;
+
+import java.math.BigInteger;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes factorials. Values up to {@link #MAX_LONG}! fit in a {@code long}
+ * and come from a precomputed table; larger ones are computed as a
+ * {@link BigInteger} by multiplying the range in a balanced binary tree, so
+ * the expensive multiplications are between operands of similar size. Very
+ * large ranges are split across the common fork-join pool.
+ */
+final class Factorials {
+
+    /**
+     * The largest n whose factorial fits in a {@code long}.
+     */
+    static final int MAX_LONG = 20;
+
+    /**
+     * The largest n accepted, which keeps a single command from running for minutes.
+     */
+    static final int MAX = 1_000_000;
+
+    private static final int TABLE_SIZE = 128;
+    private static final int PARALLEL_THRESHOLD = 50_000;
+    private static final int LEAF_SIZE = 32;
+
+    private static final long[] LONGS = new long[MAX_LONG + 1];
+    private static final BigInteger[] TABLE = new BigInteger[TABLE_SIZE];
+
+    static {
+        LONGS[0] = 1;
+        for (int i = 1; i <= MAX_LONG; i++) {
+            LONGS[i] = LONGS[i - 1] * i;
+        }
+        TABLE[0] = BigInteger.ONE;
+        for (int i = 1; i < TABLE_SIZE; i++) {
+            TABLE[i] = TABLE[i - 1].multiply(BigInteger.valueOf(i));
+        }
+    }
+
+    private Factorials() {}
+
+    /**
+     * @param n a number between 0 and {@link #MAX_LONG}.
+     * @return n!
+     */
+    static long longValue(int n) {
+        return LONGS[n];
+    }
+
+    /**
+     * @param n a number between 0 and {@link #MAX}.
+     * @return n!
+     */
+    static BigInteger bigValue(int n) {
+        if (n < TABLE_SIZE) {
+            return TABLE[n];
+        }
+        if (n < PARALLEL_THRESHOLD) {
+            return product(1, n);
+        }
+        return new Product(1, n).invoke();
+    }
+
+    /**
+     * Multiplies every integer in {@code [low, high]} with a balanced binary split.
+     */
+    static BigInteger product(int low, int high) {
+        if (high - low < LEAF_SIZE) {
+            return leafProduct(low, high);
+        }
+        int middle = (low + high) >>> 1;
+        return product(low, middle).multiply(product(middle + 1, high));
+    }
+
+    /**
+     * Multiplies a short range, accumulating in a {@code long} for as long as it cannot overflow.
+     */
+    private static BigInteger leafProduct(int low, int high) {
+        var result = BigInteger.ONE;
+        long partial = 1;
+        for (long i = low; i <= high; i++) {
+            if (partial > Long.MAX_VALUE / i) {
+                result = result.multiply(BigInteger.valueOf(partial));
+                partial = 1;
+            }
+            partial *= i;
+        }
+        return result.multiply(BigInteger.valueOf(partial));
+    }
+
+    private static final class Product extends RecursiveTask<BigInteger> {
+
+        private final int low;
+        private final int high;
+
+        Product(int low, int high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            if (high - low < PARALLEL_THRESHOLD / 4) {
+                return product(low, high);
+            }
+            int middle = (low + high) >>> 1;
+            var left = new Product(low, middle);
+            left.fork();
+            var right = new Product(middle + 1, high).compute();
+            return left.join().multiply(right);
+        }
+
+    }
+
+}
@@ -0,0 +1,176 @@
+package oop.project.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs every line of a file through {@link Scenarios}, in parallel, writing
+ * results in the original line order. The file is memory-mapped one chunk at
+ * a time and each chunk is split on newline boundaries, so ASCII lines are
+ * parsed in place with {@link Scenarios#tryParse(ByteBuffer, int, int)} and
+ * never decoded into strings. A line with any byte above 0x7F is decoded as
+ * UTF-8 instead, as {@code Main --batch} reads it. Only a fixed number of
+ * chunks are in flight at once, so memory use does not grow with the size of
+ * the file.
+ *
+ * <p>Each line produces one record in the given {@link OutputFormat}, the same
+ * as {@code Main --batch} would write. Unlike batch mode, every line is a
+ * command: {@code exit} and {@code stats} are not special, and are rejected as
+ * unknown commands like any other. A line longer than {@link #MAX_LINE} bytes
+ * is rejected without being parsed, and a chunk never extends more than that
+ * past its nominal size, however long the lines in the file are.
+ */
+final class FileProcessor {
+
+    static final int CHUNK_SIZE = 4 << 20;
+
+    /**
+     * The longest line that is parsed. No command needs more, and a chunk is
+     * only extended this far past its size to reach the end of its last line.
+     */
+    static final int MAX_LINE = 1 << 16;
+
+    private static final int SCAN_WINDOW = 1 << 16;
+
+    private static final ParseResult LINE_TOO_LONG = ParseResult.failure(ErrorCode.INVALID_FORMAT, "Line is longer than " + MAX_LINE + " bytes.");
+
+    /**
+     * The number of lines processed and how many of them failed.
+     */
+    record Summary(long lines, long errors) {}
+
+    private FileProcessor() {}
+
+    static Summary process(Path input, WritableByteChannel output, int threads, OutputFormat format) throws IOException, InterruptedException {
+        return process(input, output, threads, format, CHUNK_SIZE);
+    }
+
+    static Summary process(Path input, WritableByteChannel output, int threads, OutputFormat format, int chunkSize) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "file-processor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (var channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            var pending = new ArrayDeque<Future<Chunk>>();
+            long size = channel.size();
+            long lines = 0;
+            long errors = 0;
+            long start = 0;
+            while (start < size || !pending.isEmpty()) {
+                // Keep two chunks per thread in flight, so workers stay busy while
+                // the oldest one is written, without reading ahead any further.
+                while (start < size && pending.size() < threads * 2) {
+                    long limit = Math.min(size, start + chunkSize);
+                    long end = boundary(channel, limit, Math.min(size, limit + MAX_LINE), size);
+                    // A line that runs past the scan bound is too long to parse anyway, so
+                    // the chunk stops where it was going to, and the rest of the line is skipped.
+                    boolean truncated = end < 0;
+                    var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, (truncated ? limit : end) - start);
+                    pending.add(executor.submit(() -> parse(buffer, format, truncated)));
+                    start = truncated ? boundary(channel, limit, size) : end;
+                }
+                var chunk = await(pending.remove());
+                lines += chunk.lines;
+                errors += chunk.errors;
+                chunk.output.writeTo(output);
+            }
+            return new Summary(lines, errors);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the first line start at or after {@code from}, scanning forward in
+     * small mapped windows.
+     */
+    static long boundary(FileChannel channel, long from, long size) throws IOException {
+        long end = boundary(channel, from, size, size);
+        return end < 0 ? size : end;
+    }
+
+    /**
+     * Finds the first line start at or after {@code from} like
+     * {@link #boundary(FileChannel, long, long)}, but only scans up to
+     * {@code to}, returning -1 if there is no line start before it.
+     */
+    static long boundary(FileChannel channel, long from, long to, long size) throws IOException {
+        if (from == 0 || from == size) {
+            return from;
+        }
+        for (long window = from - 1; window < to; window += SCAN_WINDOW) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, window, Math.min(SCAN_WINDOW, to - window));
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return window + i + 1;
+                }
+            }
+        }
+        return to == size ? size : -1;
+    }
+
+    /**
+     * Parses every line of a chunk. If the chunk is {@code truncated}, its last
+     * line continues past the end of the chunk and is rejected as too long.
+     */
+    private static Chunk parse(MappedByteBuffer buffer, OutputFormat format, boolean truncated) {
+        var output = new OutputBuffer(buffer.limit() + (buffer.limit() >> 1));
+        long lines = 0;
+        long errors = 0;
+        int limit = buffer.limit();
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            boolean ascii = true;
+            byte b;
+            while (end < limit && (b = buffer.get(end)) != '\n') {
+                ascii &= b >= 0;
+                end++;
+            }
+            int next = end + 1;
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            lines++;
+            ParseResult result;
+            if (end - start > MAX_LINE || next > limit && truncated) {
+                result = LINE_TOO_LONG;
+            } else if (ascii) {
+                result = Scenarios.tryParse(buffer, start, end - start);
+            } else {
+                var bytes = new byte[end - start];
+                buffer.get(start, bytes);
+                result = Scenarios.tryParse(new String(bytes, StandardCharsets.UTF_8));
+            }
+            if (!result.isSuccess()) {
+                errors++;
+            }
+            format.write(result, output);
+            start = next;
+        }
+        return new Chunk(output, lines, errors);
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to process chunk", e.getCause());
+        }
+    }
+
+    private record Chunk(OutputBuffer output, long lines, long errors) {}
+
+}
@@ -0,0 +1,95 @@
+package oop.project.cli;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies in nanoseconds. Buckets are
+ * log-linear: every power of two is split into four sub-buckets, so a
+ * recorded value is reported to within 25%. Each bucket is a
+ * {@link LongAdder}, so concurrent recording threads do not contend.
+ */
+final class LatencyHistogram {
+
+    private static final int BUCKETS = 8 + 60 * 4;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        buckets[bucket(Math.max(0, nanos))].increment();
+        total.add(nanos);
+    }
+
+    /**
+     * @return the number of recorded values.
+     */
+    long count() {
+        long count = 0;
+        for (var bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return the mean of the recorded values, or 0 if there are none.
+     */
+    double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) total.sum() / count;
+    }
+
+    /**
+     * @param percentile a fraction between 0 and 1.
+     * @return the lower bound of the bucket holding the given percentile, or 0 if there are no values.
+     */
+    long percentile(double percentile) {
+        var counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return lowerBound(i);
+            }
+        }
+        return 0;
+    }
+
+    void reset() {
+        for (var bucket : buckets) {
+            bucket.reset();
+        }
+        total.reset();
+    }
+
+    static int bucket(long value) {
+        if (value < 8) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 2)) & 3;
+        return Math.min(BUCKETS - 1, 8 + (exponent - 3) * 4 + sub);
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < 8) {
+            return bucket;
+        }
+        int exponent = (bucket - 8) / 4 + 3;
+        int sub = (bucket - 8) % 4;
+        return (4L + sub) << (exponent - 2);
+    }
+
+}
@@ -0,0 +1,112 @@
+package oop.project.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A load generator for {@link ScenarioServer}. It opens a number of
+ * connections, keeps up to {@code depth} pipelined commands in flight on each,
+ * and reports throughput and the p50/p99 latency from sending a command to
+ * reading its response.
+ *
+ * <p>Usage: {@code LoadTestClient <address> [connections] [requests per connection] [depth]},
+ * where the address is as accepted by {@link ScenarioServer#parseAddress(String)}.
+ */
+public final class LoadTestClient {
+
+    private static final String[] COMMANDS = {
+        "add 1 2", "sub --left 1.0 --right 2.0", "sqrt 4", "calc add", "date 2024-01-01",
+        "time 12:00:00", "mul 5 4", "div 10 2", "pow 2 3", "fact 5", "log 10", "div 5 0",
+    };
+
+    private LoadTestClient() {}
+
+    public static void main(String[] args) throws Exception {
+        var address = ScenarioServer.parseAddress(args[0]);
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        var futures = new ArrayList<Future<long[]>>();
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            futures.add(executor.submit(connection(address, requests, depth)));
+        }
+        var latencies = new long[connections * requests];
+        int count = 0;
+        for (var future : futures) {
+            var connectionLatencies = future.get();
+            System.arraycopy(connectionLatencies, 0, latencies, count, connectionLatencies.length);
+            count += connectionLatencies.length;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        Arrays.sort(latencies, 0, count);
+        System.out.printf("%d requests over %d connections (depth %d) in %.3f s: %.0f requests/s%n",
+                count, connections, depth, seconds, count / seconds);
+        System.out.printf("latency p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                percentile(latencies, count, 0.50) / 1e3, percentile(latencies, count, 0.99) / 1e3, latencies[count - 1] / 1e3);
+    }
+
+    /**
+     * Sends {@code requests} commands on one connection, keeping up to {@code depth} unanswered,
+     * and returns the latency of each in nanoseconds.
+     */
+    private static Callable<long[]> connection(SocketAddress address, int requests, int depth) {
+        return () -> {
+            var latencies = new long[requests];
+            var sentAt = new long[depth];
+            try (var channel = open(address)) {
+                var reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+                var writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+                int sent = 0;
+                int received = 0;
+                while (received < requests) {
+                    while (sent < requests && sent - received < depth) {
+                        sentAt[sent % depth] = System.nanoTime();
+                        writer.write(COMMANDS[sent % COMMANDS.length]);
+                        writer.write('\n');
+                        sent++;
+                    }
+                    writer.flush();
+                    if (reader.readLine() == null) {
+                        throw new IOException("Server closed the connection after " + received + " responses.");
+                    }
+                    latencies[received] = System.nanoTime() - sentAt[received % depth];
+                    received++;
+                }
+            }
+            return latencies;
+        };
+    }
+
+    private static SocketChannel open(SocketAddress address) throws IOException {
+        var channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+        channel.connect(address);
+        return channel;
+    }
+
+    private static long percentile(long[] sorted, int count, double percentile) {
+        return sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+    }
+
+}
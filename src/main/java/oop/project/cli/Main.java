@@ -1,21 +1,139 @@
 package oop.project.cli;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.SocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static ParseCache cache;
+
     /**
      * A default implementation of main that can be used to run scenarios.
+     * Passing {@code --batch} reads commands from stdin until EOF instead, and
+     * {@code --cache <size>} puts a {@link ParseCache} of that size in front of the parser; it is
+     * rejected with {@code --server}, {@code --input}, {@code --bulk} and {@code --stats}, which do not use it.
+     * {@code --server <address>} serves commands over a socket instead (see {@link ScenarioServer}),
+     * accepting up to {@code --max-connections <n>} clients at once.
+     * {@code --metrics} records per-command metrics (see {@link ScenarioMetrics}) and publishes them
+     * over JMX; the {@code stats} command prints them. {@code --bulk <op> [file]} applies add, sub, mul
+     * or div to every pair of numbers in the file, or in stdin if no file is given (see {@link BulkArithmetic}).
+     * {@code --input <file>} runs every line of a file through the parser on all cores, writing results
+     * in order to {@code --output <file>} or stdout (see {@link FileProcessor}); unlike {@code --batch}, it
+     * treats {@code exit} and {@code stats} lines as commands, which are rejected as unknown.
+     * {@code --format text|json|binary} selects how results are written (see {@link OutputFormat}).
+     * {@code --stats [file]} prints the count, sum, mean, variance, extremes and quantiles of the numbers
+     * in the file, split across all cores, or in stdin if no file is given (see {@link StreamingStatistics}).
+     * {@code --snapshot <file>} backs the cache with an on-disk snapshot that is read on the first miss
+     * and rewritten every {@code --snapshot-interval <seconds>} (60 by default) and at exit, so a restarted
+     * process does not reparse the command lines it saw before (see {@link ParseCache#loadSnapshot}).
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean batch = false;
+        String server = null;
+        String bulk = null;
+        String bulkFile = null;
+        boolean stats = false;
+        String statsFile = null;
+        String inputFile = null;
+        String outputFile = null;
+        String snapshotFile = null;
+        long snapshotInterval = 60;
+        int maxConnections = 1024;
+        var format = OutputFormat.TEXT;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--batch" -> batch = true;
+                case "--cache" -> cache = new ParseCache(Long.parseLong(args[++i]));
+                case "--server" -> server = args[++i];
+                case "--max-connections" -> maxConnections = Integer.parseInt(args[++i]);
+                case "--bulk" -> {
+                    bulk = args[++i];
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        bulkFile = args[++i];
+                    }
+                }
+                case "--stats" -> {
+                    stats = true;
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        statsFile = args[++i];
+                    }
+                }
+                case "--input" -> inputFile = args[++i];
+                case "--output" -> outputFile = args[++i];
+                case "--format" -> format = OutputFormat.of(args[++i]);
+                case "--snapshot" -> snapshotFile = args[++i];
+                case "--snapshot-interval" -> snapshotInterval = Long.parseLong(args[++i]);
+                case "--metrics" -> {
+                    ScenarioMetrics.setEnabled(true);
+                    ScenarioMetrics.registerMBean();
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (cache != null && (server != null || bulk != null || stats || inputFile != null)) {
+            throw new IllegalArgumentException("--cache only applies to --batch and interactive input.");
+        }
+        if (snapshotFile != null) {
+            if (cache == null) {
+                throw new IllegalArgumentException("--snapshot requires --cache.");
+            }
+            startSnapshots(Path.of(snapshotFile), snapshotInterval);
+        }
+        if (server != null) {
+            serve(ScenarioServer.parseAddress(server), maxConnections);
+            return;
+        }
+        if (bulk != null) {
+            bulk(BulkArithmetic.Operation.of(bulk), bulkFile);
+            return;
+        }
+        if (stats) {
+            stats(statsFile);
+            return;
+        }
+        if (inputFile != null) {
+            processFile(Path.of(inputFile), outputFile, format);
+            return;
+        }
+        if (batch) {
+            batch(format);
+            return;
+        }
         var scanner = new Scanner(System.in);
+        var buffer = new OutputBuffer(256);
         while (true) {
             var input = scanner.nextLine();
             if (input.equals("exit")) {
                 break;
             }
+            if (input.equals("stats")) {
+                System.out.println(ScenarioMetrics.report());
+                continue;
+            }
+            if (format != OutputFormat.TEXT) {
+                format.write(parse(input), buffer);
+                buffer.writeTo(System.out);
+                System.out.flush();
+                continue;
+            }
             try {
-                var result = Scenarios.parse(input);
+                var result = parse(input).value();
                 System.out.println(result);
             } catch (Exception e) {
                 System.out.println("Unexpected exception: " + e.getClass().getName() + ", " + e.getMessage());
@@ -23,4 +141,151 @@ public class Main {
         }
     }
 
+    /**
+     * Runs every line of stdin through {@link Scenarios#tryParse(String)}, writing results in the given
+     * format; the text format matches the interactive mode. Results are serialized into one reusable
+     * buffer that is only written out when it fills or at EOF, so piping large command files does not
+     * pay for a flush per line. A throughput summary is printed to stderr at the end.
+     */
+    private static void batch(OutputFormat format) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(new FileInputStream(FileDescriptor.in), StandardCharsets.UTF_8), BUFFER_SIZE);
+        var out = new FileOutputStream(FileDescriptor.out);
+        var buffer = new OutputBuffer(BUFFER_SIZE + (BUFFER_SIZE >> 2));
+
+        long lines = 0;
+        long errors = 0;
+        long start = System.nanoTime();
+        String input;
+        while ((input = reader.readLine()) != null && !input.equals("exit")) {
+            if (input.equals("stats")) {
+                if (format == OutputFormat.BINARY) {
+                    System.err.println(ScenarioMetrics.report());
+                } else {
+                    buffer.utf8(ScenarioMetrics.report()).write('\n');
+                }
+                continue;
+            }
+            lines++;
+            var result = parse(input);
+            if (!result.isSuccess()) {
+                errors++;
+            }
+            format.write(result, buffer);
+            if (buffer.size() >= BUFFER_SIZE) {
+                buffer.writeTo(out);
+            }
+        }
+        buffer.writeTo(out);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Processed %d lines (%d errors) in %.3f s, %.0f lines/s%n", lines, errors, seconds, lines / seconds);
+        if (cache != null) {
+            var stats = cache.stats();
+            System.err.printf("Cache: %d hits, %d misses (%d from snapshot), %d evictions (%.1f%% hit rate)%n",
+                    stats.hitCount(), stats.missCount(), cache.snapshotHits(), stats.evictionCount(), stats.hitRate() * 100);
+        }
+    }
+
+    /**
+     * Runs {@link BulkArithmetic} over a file or stdin, writing results to stdout and a summary to stderr.
+     */
+    private static void bulk(BulkArithmetic.Operation operation, String file) throws IOException {
+        var input = file != null ? new FileInputStream(file) : new FileInputStream(FileDescriptor.in);
+        try (var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            var writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), BUFFER_SIZE);
+            long start = System.nanoTime();
+            var summary = BulkArithmetic.run(operation, reader, writer);
+            writer.flush();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("Processed %d rows (%d errors) in %.3f s, %.0f rows/s%s%n", summary.rows(), summary.errors(),
+                    seconds, summary.rows() / seconds, BulkArithmetic.VECTORIZED ? "" : " (scalar)");
+        }
+    }
+
+    /**
+     * Aggregates the numbers in a file or stdin with {@link StatisticsProcessor}, writing the
+     * statistics to stdout and a summary to stderr.
+     */
+    private static void stats(String file) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        StatisticsProcessor.Summary summary;
+        if (file != null) {
+            summary = StatisticsProcessor.process(Path.of(file), Runtime.getRuntime().availableProcessors());
+        } else {
+            var reader = new BufferedReader(new InputStreamReader(new FileInputStream(FileDescriptor.in), StandardCharsets.UTF_8), BUFFER_SIZE);
+            summary = StatisticsProcessor.process(reader);
+        }
+        System.out.println(summary.statistics());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Processed %d numbers (%d rejected) in %.3f s, %.0f numbers/s%n", summary.statistics().count(),
+                summary.rejected(), seconds, summary.statistics().count() / seconds);
+    }
+
+    /**
+     * Runs {@link FileProcessor} over a file, writing to another file or stdout and a summary to stderr.
+     */
+    private static void processFile(Path input, String output, OutputFormat format) throws IOException, InterruptedException {
+        try (var channel = output != null
+                ? FileChannel.open(Path.of(output), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                : new FileOutputStream(FileDescriptor.out).getChannel()) {
+            long start = System.nanoTime();
+            var summary = FileProcessor.process(input, channel, Runtime.getRuntime().availableProcessors(), format);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("Processed %d lines (%d errors) in %.3f s, %.0f lines/s%n", summary.lines(), summary.errors(), seconds, summary.lines() / seconds);
+        }
+    }
+
+    /**
+     * Backs the cache with a snapshot file, which is rewritten periodically in the
+     * background and once more when the process exits.
+     */
+    private static void startSnapshots(Path file, long intervalSeconds) {
+        cache.loadSnapshot(file, e -> System.err.println("Discarding cache snapshot " + file + ": " + e.getMessage()));
+        var scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runnable save = () -> {
+            try {
+                cache.saveSnapshot(file);
+            } catch (IOException e) {
+                System.err.println("Failed to write cache snapshot: " + e.getMessage());
+            }
+        };
+        scheduler.scheduleWithFixedDelay(save, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            save.run();
+        }));
+    }
+
+    /**
+     * Runs a server until the process is asked to stop, then shuts it down gracefully.
+     */
+    private static void serve(SocketAddress address, int maxConnections) throws IOException, InterruptedException {
+        var server = ScenarioServer.start(address, maxConnections);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Failed to shut down: " + e.getMessage());
+            }
+        }));
+        System.err.println("Listening on " + server.address());
+        server.awaitShutdown();
+    }
+
+    /**
+     * Parses a command, going through the cache if one is enabled.
+     */
+    private static ParseResult parse(String input) {
+        return cache != null ? cache.tryParse(input) : Scenarios.tryParse(input);
+    }
+
 }
@@ -0,0 +1,355 @@
+package oop.project.cli;
+
+import java.math.BigInteger;
+
+/**
+ * Parses numbers straight from a range of a {@link CharSequence}, reporting
+ * invalid input through a sentinel status value instead of an exception.
+ * The accepted syntax and the results are exactly those of
+ * {@link Integer#parseInt(String)} and {@link Double#parseDouble(String)}.
+ *
+ * <p>Doubles are parsed in three steps. A recognizer checks the full
+ * {@link Double#valueOf(String)} grammar and collects up to 19 significant
+ * digits and a decimal exponent. Small values are then converted exactly with
+ * Clinger's fast path, and the rest with the Eisel-Lemire algorithm (as in
+ * Go's {@code strconv}), which is correctly rounded and gives up on the rare
+ * inputs it cannot decide. Those, along with hexadecimal literals, longer
+ * mantissas and subnormal results, fall back to the JDK on a string that is
+ * already known to be valid.
+ */
+final class NumberParser {
+
+    /**
+     * Returned by {@link #parseInt} for invalid input. It is outside the int
+     * range, so it cannot be confused with a result.
+     */
+    static final long INVALID_INT = Long.MIN_VALUE;
+
+    /**
+     * Returned by {@link #parseDoubleBits} for invalid input. It is a NaN bit
+     * pattern that {@link Double#parseDouble(String)} never produces, since that
+     * always returns the canonical NaN.
+     */
+    static final long INVALID_DOUBLE = 0x7FF0_0000_0000_0BADL;
+
+    private static final int MIN_EXPONENT = -348;
+    private static final int MAX_EXPONENT = 347;
+
+    /**
+     * The 128-bit mantissas of 10^q for q from {@link #MIN_EXPONENT} to
+     * {@link #MAX_EXPONENT}, normalized so their top bit is set and truncated
+     * (rounded down), split into high and low halves.
+     */
+    private static final long[] POWERS_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final long[] POWERS_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+    /**
+     * Powers of ten that are exact as doubles, for Clinger's fast path.
+     */
+    private static final double[] EXACT_POWERS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    static {
+        var mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int q = MIN_EXPONENT; q <= MAX_EXPONENT; q++) {
+            BigInteger mantissa;
+            if (q >= 0) {
+                var power = BigInteger.valueOf(5).pow(q);
+                mantissa = power.bitLength() <= 128 ? power.shiftLeft(128 - power.bitLength()) : power.shiftRight(power.bitLength() - 128);
+            } else {
+                // 2^b / 5^-q lies in [2^127, 2^128) when b is 127 more than the bit length of 5^-q.
+                var power = BigInteger.valueOf(5).pow(-q);
+                mantissa = BigInteger.ONE.shiftLeft(power.bitLength() + 127).divide(power);
+            }
+            POWERS_HIGH[q - MIN_EXPONENT] = mantissa.shiftRight(64).longValue();
+            POWERS_LOW[q - MIN_EXPONENT] = mantissa.and(mask).longValue();
+        }
+    }
+
+    private NumberParser() {}
+
+    /**
+     * Parses a decimal int with the same rules as {@link Integer#parseInt(String)}:
+     * an optional sign followed by digits, which may be any Unicode decimal digits.
+     *
+     * @return the value, or {@link #INVALID_INT} if the range is not a valid int.
+     */
+    static long parseInt(CharSequence text, int start, int end) {
+        if (start >= end) {
+            return INVALID_INT;
+        }
+        boolean negative = false;
+        int limit = -Integer.MAX_VALUE;
+        int i = start;
+        char first = text.charAt(i);
+        if (first < '0') {
+            if (first == '-') {
+                negative = true;
+                limit = Integer.MIN_VALUE;
+            } else if (first != '+') {
+                return INVALID_INT;
+            }
+            if (++i == end) {
+                return INVALID_INT;
+            }
+        }
+        // Accumulate negatively, as Integer.parseInt does, so MIN_VALUE does not overflow.
+        int multiplyLimit = limit / 10;
+        int result = 0;
+        while (i < end) {
+            int digit = digit(text.charAt(i++));
+            if (digit < 0 || result < multiplyLimit) {
+                return INVALID_INT;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return INVALID_INT;
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static int digit(char c) {
+        if (c < 0x80) {
+            return c >= '0' && c <= '9' ? c - '0' : -1;
+        }
+        return Character.digit(c, 10);
+    }
+
+    /**
+     * Parses a double with the same rules and results as {@link Double#parseDouble(String)},
+     * including surrounding whitespace, signs, {@code NaN}, {@code Infinity}, exponents,
+     * type suffixes and hexadecimal literals.
+     *
+     * @return the raw bits of the value, or {@link #INVALID_DOUBLE} if the range is not a valid double.
+     */
+    static long parseDoubleBits(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return INVALID_DOUBLE;
+        }
+        int i = start;
+        boolean negative = false;
+        char c = text.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            if (++i == end) {
+                return INVALID_DOUBLE;
+            }
+            c = text.charAt(i);
+        }
+        if (c == 'N') {
+            return matches(text, i, end, "NaN") ? Double.doubleToRawLongBits(Double.NaN) : INVALID_DOUBLE;
+        }
+        if (c == 'I') {
+            return matches(text, i, end, "Infinity")
+                    ? Double.doubleToRawLongBits(negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY)
+                    : INVALID_DOUBLE;
+        }
+        if (c == '0' && i + 1 < end && (text.charAt(i + 1) == 'x' || text.charAt(i + 1) == 'X')) {
+            return isHex(text, i + 2, end) ? fallback(text, start, end) : INVALID_DOUBLE;
+        }
+
+        // Up to 19 digits fit in 64 bits when read as unsigned.
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean point = false;
+        for (; i < end; i++) {
+            c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (mantissa != 0 || c != '0') {
+                    if (significant < 19) {
+                        mantissa = mantissa * 10 + (c - '0');
+                    }
+                    significant++;
+                    if (significant > 19 && !point) {
+                        exponent++;
+                    }
+                }
+                if (point && significant <= 19) {
+                    exponent--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (!digits) {
+            return INVALID_DOUBLE;
+        }
+        if (i < end && (c == 'e' || c == 'E')) {
+            if (++i == end) {
+                return INVALID_DOUBLE;
+            }
+            boolean negativeExponent = false;
+            c = text.charAt(i);
+            if (c == '-' || c == '+') {
+                negativeExponent = c == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int explicit = 0;
+            for (; i < end && (c = text.charAt(i)) >= '0' && c <= '9'; i++) {
+                // Any exponent this large already makes the value zero or infinite.
+                if (explicit < 100_000_000) {
+                    explicit = explicit * 10 + (c - '0');
+                }
+            }
+            if (i == exponentStart) {
+                return INVALID_DOUBLE;
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (i < end && (i != end - 1 || "fFdD".indexOf(text.charAt(i)) < 0)) {
+            return INVALID_DOUBLE;
+        }
+
+        if (mantissa == 0) {
+            return negative ? Long.MIN_VALUE : 0;
+        }
+        if (significant > 19) {
+            return fallback(text, start, end);
+        }
+        // Clinger's fast path: both the mantissa and the power of ten are exact doubles,
+        // so a single correctly rounded multiplication or division gives the result.
+        if (exponent >= -22 && exponent <= 22 && mantissa >= 0 && mantissa <= 1L << 53) {
+            double value = exponent >= 0 ? mantissa * EXACT_POWERS[exponent] : mantissa / EXACT_POWERS[-exponent];
+            return Double.doubleToRawLongBits(negative ? -value : value);
+        }
+        long bits = eiselLemire(mantissa, exponent);
+        if (bits < 0) {
+            return fallback(text, start, end);
+        }
+        return negative ? bits | Long.MIN_VALUE : bits;
+    }
+
+    /**
+     * Converts {@code mantissa * 10^exponent} to the nearest double, following Go's
+     * {@code eiselLemire64}.
+     *
+     * @return the bits of the positive result, or -1 if the result cannot be decided
+     * this way or is subnormal, zero or infinite.
+     */
+    private static long eiselLemire(long mantissa, int exponent) {
+        if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT) {
+            return -1;
+        }
+        int index = exponent - MIN_EXPONENT;
+
+        // Normalization.
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= leadingZeros;
+        long exponent2 = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+        // Multiplication.
+        long high = unsignedMultiplyHigh(mantissa, POWERS_HIGH[index]);
+        long low = mantissa * POWERS_HIGH[index];
+
+        // Wider approximation, when the truncated product is too close to call.
+        if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+            long wideHigh = unsignedMultiplyHigh(mantissa, POWERS_LOW[index]);
+            long wideLow = mantissa * POWERS_LOW[index];
+            long mergedHigh = high;
+            long mergedLow = low + wideHigh;
+            if (Long.compareUnsigned(mergedLow, low) < 0) {
+                mergedHigh++;
+            }
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0 && Long.compareUnsigned(wideLow + mantissa, mantissa) < 0) {
+                return -1;
+            }
+            high = mergedHigh;
+            low = mergedLow;
+        }
+
+        // Shifting to 54 bits.
+        long top = high >>> 63;
+        long result = high >>> (top + 9);
+        exponent2 -= 1 ^ top;
+
+        // Half-way ambiguity.
+        if (low == 0 && (high & 0x1FF) == 0 && (result & 3) == 1) {
+            return -1;
+        }
+
+        // From 54 to 53 bits.
+        result += result & 1;
+        result >>>= 1;
+        if (result >>> 53 > 0) {
+            result >>>= 1;
+            exponent2++;
+        }
+        if (exponent2 <= 0 || exponent2 >= 0x7FF) {
+            return -1;
+        }
+        return exponent2 << 52 | result & 0x000F_FFFF_FFFF_FFFFL;
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    /**
+     * Checks the rest of a hexadecimal literal after {@code 0x}:
+     * {@code (hex+ '.'? | hex* '.' hex+) [pP] [+-]? digit+ [fFdD]?}.
+     */
+    private static boolean isHex(CharSequence text, int i, int end) {
+        int digits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.digit(c, 16) >= 0 && c < 0x80) {
+                digits++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0 || i == end || (text.charAt(i) != 'p' && text.charAt(i) != 'P')) {
+            return false;
+        }
+        if (++i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+            i++;
+        }
+        int exponentStart = i;
+        while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == exponentStart) {
+            return false;
+        }
+        return i == end || i == end - 1 && "fFdD".indexOf(text.charAt(i)) >= 0;
+    }
+
+    private static boolean matches(CharSequence text, int start, int end, String literal) {
+        if (end - start != literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (text.charAt(start + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses input that has already been validated with the JDK, for the cases the fast paths do not cover.
+     */
+    private static long fallback(CharSequence text, int start, int end) {
+        return Double.doubleToRawLongBits(Double.parseDouble(text.subSequence(start, end).toString()));
+    }
+
+}
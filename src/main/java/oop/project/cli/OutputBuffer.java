@@ -0,0 +1,203 @@
+package oop.project.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A growable byte buffer that results are serialized into, meant to be
+ * reused across many results. Numbers are written as digits directly into
+ * the buffer, so serializing a result does not create intermediate strings.
+ */
+public final class OutputBuffer {
+
+    private static final byte[] MIN_LONG = "-9223372036854775808".getBytes();
+
+    private byte[] bytes;
+    private int size;
+    private final StringBuilder scratch = new StringBuilder(32);
+
+    public OutputBuffer(int capacity) {
+        this.bytes = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * @return the number of bytes written since the last {@link #reset()}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discards the contents, keeping the allocated capacity.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * Discards everything written after the given size, such as a record that turned out not to be needed.
+     */
+    public void truncate(int size) {
+        this.size = Objects.checkIndex(size, this.size + 1);
+    }
+
+    /**
+     * Writes the contents to a stream and resets the buffer.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+        size = 0;
+    }
+
+    /**
+     * Writes the contents to a channel and resets the buffer.
+     */
+    public void writeTo(WritableByteChannel out) throws IOException {
+        var buffer = ByteBuffer.wrap(bytes, 0, size);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the contents.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    public OutputBuffer write(int b) {
+        ensure(1);
+        bytes[size++] = (byte) b;
+        return this;
+    }
+
+    public OutputBuffer write(byte[] b) {
+        ensure(b.length);
+        System.arraycopy(b, 0, bytes, size, b.length);
+        size += b.length;
+        return this;
+    }
+
+    /**
+     * Writes a sequence as UTF-8.
+     */
+    public OutputBuffer utf8(CharSequence text) {
+        int length = text.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes[size++] = (byte) c;
+                continue;
+            }
+            // Keep room for this character's bytes plus one per remaining character.
+            ensure(4 + length - i);
+            if (c < 0x800) {
+                bytes[size++] = (byte) (0xC0 | c >> 6);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                bytes[size++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[size++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                bytes[size++] = '?';
+            } else {
+                bytes[size++] = (byte) (0xE0 | c >> 12);
+                bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes a number as decimal digits.
+     */
+    public OutputBuffer decimal(long value) {
+        if (value == Long.MIN_VALUE) {
+            return write(MIN_LONG);
+        }
+        ensure(20);
+        if (value < 0) {
+            bytes[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+            digits++;
+        }
+        for (int i = size + digits - 1; i >= size; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+        return this;
+    }
+
+    /**
+     * Writes a number in the format of {@link Double#toString(double)}.
+     */
+    public OutputBuffer decimal(double value) {
+        // StringBuilder formats doubles in place, so this copies characters
+        // rather than allocating a string per value.
+        scratch.setLength(0);
+        scratch.append(value);
+        return utf8(scratch);
+    }
+
+    /**
+     * Writes a non-negative number padded with zeros to the given width.
+     */
+    public OutputBuffer padded(int value, int width) {
+        ensure(width);
+        for (int i = size + width - 1; i >= size; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += width;
+        return this;
+    }
+
+    /**
+     * Writes a big-endian 32-bit integer.
+     */
+    public OutputBuffer int32(int value) {
+        ensure(4);
+        putInt32(size, value);
+        size += 4;
+        return this;
+    }
+
+    /**
+     * Writes a big-endian 64-bit integer.
+     */
+    public OutputBuffer int64(long value) {
+        int32((int) (value >>> 32));
+        return int32((int) value);
+    }
+
+    /**
+     * Overwrites a big-endian 32-bit integer at an earlier position, such as a length prefix.
+     */
+    public void putInt32(int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+
+    private void ensure(int count) {
+        if (size + count > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + count));
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+package oop.project.cli;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+
+/**
+ * How results are written by {@code Main}. Every format writes one record per
+ * result into an {@link OutputBuffer}.
+ *
+ * <ul>
+ *     <li>{@link #TEXT}: the original format, the result map's {@code toString()}
+ *     or an {@code Unexpected exception} line, one per line.</li>
+ *     <li>{@link #JSON}: JSON Lines, either the result's fields as an object or
+ *     {@code {"error":"<code>","message":"<message>"}}. Output is pure ASCII;
+ *     dates and times are ISO-8601 strings, an empty {@link Optional} is
+ *     {@code null}, and non-finite doubles are the strings {@code "NaN"},
+ *     {@code "Infinity"} and {@code "-Infinity"}.</li>
+ *     <li>{@link #BINARY}: length-prefixed records, described at {@link #BINARY}.</li>
+ * </ul>
+ */
+public enum OutputFormat {
+
+    TEXT {
+        @Override
+        public void write(ParseResult result, OutputBuffer out) {
+            if (result.isSuccess()) {
+                out.utf8(result.value().toString());
+            } else {
+                out.utf8("Unexpected exception: java.lang.IllegalArgumentException, ").utf8(result.message());
+            }
+            out.write('\n');
+        }
+    },
+
+    JSON {
+        @Override
+        public void write(ParseResult result, OutputBuffer out) {
+            out.write('{');
+            if (result.isSuccess()) {
+                boolean first = true;
+                for (var field : result.value().entrySet()) {
+                    if (!first) {
+                        out.write(',');
+                    }
+                    first = false;
+                    jsonString(field.getKey(), out);
+                    out.write(':');
+                    jsonValue(field.getValue(), out);
+                }
+            } else {
+                out.utf8("\"error\":\"").utf8(result.errorCode().name()).utf8("\",\"message\":");
+                jsonString(result.message(), out);
+            }
+            out.write('}').write('\n');
+        }
+    },
+
+    /**
+     * Each record is a big-endian {@code int32} length followed by that many bytes:
+     * a status byte, then for a success ({@code 0}) a field count byte and each
+     * field as a name (length byte and ASCII) followed by a tagged value, or for a
+     * failure ({@code 1}) the error code name (length byte and ASCII) and the
+     * message (int32 length and UTF-8). Value tags are listed in {@link #TAG_INT}
+     * and the following constants; strings and big integers are prefixed with an
+     * int32 byte length.
+     */
+    BINARY {
+        @Override
+        public void write(ParseResult result, OutputBuffer out) {
+            int start = out.size();
+            out.int32(0);
+            if (result.isSuccess()) {
+                var fields = result.value();
+                out.write(0).write(fields.size());
+                for (var field : fields.entrySet()) {
+                    shortString(field.getKey(), out);
+                    binaryValue(field.getValue(), out);
+                }
+            } else {
+                out.write(1);
+                shortString(result.errorCode().name(), out);
+                longString(result.message(), out);
+            }
+            out.putInt32(start, out.size() - start - 4);
+        }
+    };
+
+    /** An {@code int32}. */
+    public static final int TAG_INT = 1;
+    /** An {@code int64}. */
+    public static final int TAG_LONG = 2;
+    /** An IEEE 754 double as its {@code int64} bits. */
+    public static final int TAG_DOUBLE = 3;
+    /** An {@code int32} year, then month and day bytes. */
+    public static final int TAG_DATE = 4;
+    /** Hour, minute and second bytes, then {@code int32} nanoseconds. */
+    public static final int TAG_TIME = 5;
+    /** An empty {@link Optional}, with no payload. */
+    public static final int TAG_EMPTY = 6;
+    /** A UTF-8 string. */
+    public static final int TAG_STRING = 7;
+    /** A two's-complement big-endian integer. */
+    public static final int TAG_BIG_INTEGER = 8;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Serializes one result into the buffer.
+     *
+     * @param result the result to write, which may be a failure.
+     * @param out the buffer to append to.
+     */
+    public abstract void write(ParseResult result, OutputBuffer out);
+
+    /**
+     * @param name the format name as given on the command line: text, json or binary.
+     * @return the matching format.
+     * @throws IllegalArgumentException if the name is not a known format.
+     */
+    public static OutputFormat of(String name) {
+        return switch (name) {
+            case "text" -> TEXT;
+            case "json" -> JSON;
+            case "binary" -> BINARY;
+            default -> throw new IllegalArgumentException("Unknown format: " + name + ". Valid formats are: text, json, or binary.");
+        };
+    }
+
+    private static void jsonValue(Object value, OutputBuffer out) {
+        if (value instanceof Integer || value instanceof Long) {
+            out.decimal(((Number) value).longValue());
+        } else if (value instanceof Double number) {
+            if (Double.isFinite(number)) {
+                out.decimal(number.doubleValue());
+            } else {
+                out.write('"').decimal(number.doubleValue()).write('"');
+            }
+        } else if (value instanceof LocalDate date) {
+            out.write('"');
+            date(date, out);
+            out.write('"');
+        } else if (value instanceof LocalTime time) {
+            out.write('"');
+            time(time, out);
+            out.write('"');
+        } else if (value instanceof Optional<?> optional) {
+            if (optional.isPresent()) {
+                jsonValue(optional.get(), out);
+            } else {
+                out.utf8("null");
+            }
+        } else if (value instanceof BigInteger number) {
+            out.utf8(number.toString());
+        } else if (value == null) {
+            out.utf8("null");
+        } else {
+            jsonString(value.toString(), out);
+        }
+    }
+
+    private static void jsonString(CharSequence text, OutputBuffer out) {
+        out.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\').write(c);
+            } else if (c >= 0x20 && c < 0x7F) {
+                out.write(c);
+            } else if (c == '\n') {
+                out.write('\\').write('n');
+            } else if (c == '\t') {
+                out.write('\\').write('t');
+            } else {
+                out.write('\\').write('u').write(HEX[c >> 12]).write(HEX[c >> 8 & 0xF]).write(HEX[c >> 4 & 0xF]).write(HEX[c & 0xF]);
+            }
+        }
+        out.write('"');
+    }
+
+    private static void binaryValue(Object value, OutputBuffer out) {
+        if (value instanceof Integer number) {
+            out.write(TAG_INT).int32(number);
+        } else if (value instanceof Long number) {
+            out.write(TAG_LONG).int64(number);
+        } else if (value instanceof Double number) {
+            out.write(TAG_DOUBLE).int64(Double.doubleToRawLongBits(number));
+        } else if (value instanceof LocalDate date) {
+            out.write(TAG_DATE).int32(date.getYear()).write(date.getMonthValue()).write(date.getDayOfMonth());
+        } else if (value instanceof LocalTime time) {
+            out.write(TAG_TIME).write(time.getHour()).write(time.getMinute()).write(time.getSecond()).int32(time.getNano());
+        } else if (value instanceof Optional<?> optional) {
+            if (optional.isPresent()) {
+                binaryValue(optional.get(), out);
+            } else {
+                out.write(TAG_EMPTY);
+            }
+        } else if (value instanceof BigInteger number) {
+            var bytes = number.toByteArray();
+            out.write(TAG_BIG_INTEGER).int32(bytes.length).write(bytes);
+        } else {
+            out.write(TAG_STRING);
+            longString(String.valueOf(value), out);
+        }
+    }
+
+    private static void shortString(String text, OutputBuffer out) {
+        out.write(text.length()).utf8(text);
+    }
+
+    private static void longString(String text, OutputBuffer out) {
+        int start = out.size();
+        out.int32(0).utf8(text);
+        out.putInt32(start, out.size() - start - 4);
+    }
+
+    private static void date(LocalDate date, OutputBuffer out) {
+        if (date.getYear() < 0 || date.getYear() > 9999) {
+            out.utf8(date.toString());
+            return;
+        }
+        out.padded(date.getYear(), 4).write('-').padded(date.getMonthValue(), 2).write('-').padded(date.getDayOfMonth(), 2);
+    }
+
+    private static void time(LocalTime time, OutputBuffer out) {
+        out.padded(time.getHour(), 2).write(':').padded(time.getMinute(), 2).write(':').padded(time.getSecond(), 2);
+        if (time.getNano() != 0) {
+            out.write('.').padded(time.getNano(), 9);
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package oop.project.cli;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A bounded cache in front of {@link Scenarios#tryParse(CharSequence, CommandRegistry)}
+ * for workloads where the same command lines recur. Both successful results
+ * and rejected inputs are cached, keyed by the exact command string, and the
+ * least recently used entries are evicted once the cache is full.
+ *
+ * <p>The cache is safe for concurrent use. Cached results are shared between
+ * callers, which is safe because {@link ParseResult} and the maps it builds are
+ * immutable once created.
+ *
+ * <p>A {@link CacheSnapshot} on disk can back the cache across restarts: see
+ * {@link #loadSnapshot(Path)} and {@link #saveSnapshot(Path)}.
+ */
+public final class ParseCache {
+
+    private final Cache<String, ParseResult> cache;
+    private final CommandRegistry registry;
+    private final long maximumSize;
+    private final LongAdder snapshotHits = new LongAdder();
+    private volatile Path snapshotFile;
+    private volatile Consumer<? super IOException> onDiscard;
+    private volatile CacheSnapshot snapshot;
+
+    /**
+     * Creates a cache over the standard registry.
+     *
+     * @param maximumSize the maximum number of command strings to keep.
+     */
+    public ParseCache(long maximumSize) {
+        this(maximumSize, Scenarios.registry());
+    }
+
+    /**
+     * Creates a cache over the given registry.
+     *
+     * @param maximumSize the maximum number of command strings to keep.
+     * @param registry the commands to dispatch to on a miss.
+     */
+    public ParseCache(long maximumSize, CommandRegistry registry) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                .recordStats()
+                .build();
+        this.registry = registry;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the cached result for the command, parsing and caching it on a miss.
+     *
+     * @param command the command to parse.
+     * @return the result of the command, which may be a failure.
+     */
+    public ParseResult tryParse(String command) {
+        var result = cache.getIfPresent(command);
+        if (result == null) {
+            var snapshot = snapshot();
+            result = snapshot != null ? snapshot.lookup(command) : null;
+            if (result != null) {
+                snapshotHits.increment();
+            } else {
+                result = Scenarios.tryParse(command, registry);
+            }
+            cache.put(command, result);
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link Scenarios#parse(String)}, going through the cache.
+     *
+     * @param command the command to parse.
+     * @return a map containing the result of the executed command.
+     * @throws IllegalArgumentException if the command is invalid.
+     */
+    public Map<String, Object> parse(String command) {
+        return tryParse(command).value();
+    }
+
+    /**
+     * @return the hit, miss and eviction counts since the cache was created.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the approximate number of cached command strings.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Uses a snapshot written by {@link #saveSnapshot(Path)} behind the cache, so that
+     * command lines seen before a restart are not parsed again. The file is only
+     * opened on the first miss, and its entries are only decoded when they are
+     * looked up. A missing file is treated as empty; one that is corrupted, or was
+     * written by another version or for other commands, is silently ignored.
+     *
+     * @param file the snapshot file.
+     */
+    public void loadSnapshot(Path file) {
+        loadSnapshot(file, e -> {});
+    }
+
+    /**
+     * Same as {@link #loadSnapshot(Path)}, but passes the reason a snapshot file is
+     * ignored to {@code onDiscard}. Since the file is opened on the first miss, it is
+     * called from whichever thread parses that miss, at most once per load.
+     *
+     * @param file the snapshot file.
+     * @param onDiscard receives the error that made the file unusable.
+     */
+    public void loadSnapshot(Path file, Consumer<? super IOException> onDiscard) {
+        synchronized (this) {
+            snapshot = null;
+            snapshotFile = file;
+            this.onDiscard = onDiscard;
+        }
+    }
+
+    /**
+     * Writes the cached entries, up to the cache's maximum size, to a snapshot
+     * file, topped up with entries of the loaded snapshot that have not been
+     * used since. The file is replaced atomically.
+     *
+     * @param file the snapshot file.
+     * @return the number of entries written.
+     */
+    public int saveSnapshot(Path file) throws IOException {
+        return CacheSnapshot.write(file, registry, cache.asMap(), snapshot(), maximumSize);
+    }
+
+    /**
+     * @return the number of misses that were answered from the snapshot.
+     */
+    public long snapshotHits() {
+        return snapshotHits.sum();
+    }
+
+    private CacheSnapshot snapshot() {
+        if (snapshotFile == null) {
+            return null;
+        }
+        var snapshot = this.snapshot;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = this.snapshot;
+                if (snapshot == null && snapshotFile != null) {
+                    var file = snapshotFile;
+                    try {
+                        snapshot = CacheSnapshot.open(file, registry);
+                    } catch (IOException e) {
+                        onDiscard.accept(e);
+                    }
+                    this.snapshot = snapshot;
+                    snapshotFile = snapshot != null ? file : null;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Removes every cached entry.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+}
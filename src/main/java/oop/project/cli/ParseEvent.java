@@ -0,0 +1,55 @@
+package oop.project.cli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for one call to {@link Scenarios#tryParse(CharSequence, CommandRegistry)},
+ * recording the command, its outcome and the time spent in each phase. The
+ * event is disabled by default, and a disabled event costs one check per
+ * parse. Enable {@value #NAME} in a recording to trace parses, for example with
+ * {@code -XX:StartFlightRecording:filename=parse.jfr,+oop.project.cli.Parse#enabled=true}.
+ */
+@Name(ParseEvent.NAME)
+@Label("Parse")
+@Category("CLI")
+@Description("A command line parsed by Scenarios")
+@Enabled(false)
+@StackTrace(false)
+final class ParseEvent extends Event {
+
+    static final String NAME = "oop.project.cli.Parse";
+
+    @Label("Command")
+    @Description("The command base, or \"unknown\" if it is not registered")
+    String command;
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Outcome")
+    @Description("SUCCESS, or the error code the command was rejected with")
+    String outcome;
+
+    @Label("Tokenize Time")
+    @Description("Time spent trimming the input and dispatching on the command base")
+    @Timespan(Timespan.NANOSECONDS)
+    long tokenizeNanos;
+
+    @Label("Validate Time")
+    @Description("Time spent in the command handler, reading and checking the arguments")
+    @Timespan(Timespan.NANOSECONDS)
+    long validateNanos;
+
+    @Label("Build Time")
+    @Description("Time spent building the result map")
+    @Timespan(Timespan.NANOSECONDS)
+    long buildNanos;
+
+}
@@ -0,0 +1,113 @@
+package oop.project.cli;
+
+import java.util.Map;
+
+/**
+ * The outcome of parsing a single command: either the typed result, or an
+ * {@link ErrorCode} with a message. Failures do not capture a stack trace,
+ * and their message is only built when it is first requested. Likewise the
+ * map view of a success is only built when {@link #value()} is called.
+ */
+public final class ParseResult {
+
+    private final ParsedCommand command;
+    private final ErrorCode errorCode;
+    private final String prefix;
+    private final Object detail;
+    private final String suffix;
+    private final Object tail;
+    private String message;
+    private Map<String, Object> value;
+
+    private ParseResult(ParsedCommand command, ErrorCode errorCode, String prefix, Object detail, String suffix, Object tail) {
+        this.command = command;
+        this.errorCode = errorCode;
+        this.prefix = prefix;
+        this.detail = detail;
+        this.suffix = suffix;
+        this.tail = tail;
+    }
+
+    public static ParseResult success(ParsedCommand command) {
+        return new ParseResult(command, null, null, null, null, null);
+    }
+
+    /**
+     * Creates a failure with a constant message.
+     */
+    public static ParseResult failure(ErrorCode errorCode, String message) {
+        var result = new ParseResult(null, errorCode, message, null, null, null);
+        result.message = message;
+        return result;
+    }
+
+    /**
+     * Creates a failure whose message is {@code prefix + detail + suffix}, built on first use.
+     */
+    public static ParseResult failure(ErrorCode errorCode, String prefix, Object detail, String suffix) {
+        return new ParseResult(null, errorCode, prefix, detail, suffix, null);
+    }
+
+    /**
+     * Creates a failure whose message is {@code prefix + detail + suffix + tail}, built on first use.
+     */
+    public static ParseResult failure(ErrorCode errorCode, String prefix, Object detail, String suffix, Object tail) {
+        return new ParseResult(null, errorCode, prefix, detail, suffix, tail);
+    }
+
+    /**
+     * @return true if the command parsed successfully.
+     */
+    public boolean isSuccess() {
+        return errorCode == null;
+    }
+
+    /**
+     * Returns the typed result of a successful command.
+     *
+     * @return the parsed command.
+     * @throws IllegalArgumentException with the failure message, if the command did not succeed.
+     */
+    public ParsedCommand command() {
+        if (errorCode != null) {
+            throw new IllegalArgumentException(message());
+        }
+        return command;
+    }
+
+    /**
+     * Returns the map view of a successful command, building it on first use.
+     *
+     * @return the result map.
+     * @throws IllegalArgumentException with the failure message, if the command did not succeed.
+     */
+    public Map<String, Object> value() {
+        if (value == null) {
+            value = command().toMap();
+        }
+        return value;
+    }
+
+    /**
+     * @return why the command failed, or null if it succeeded.
+     */
+    public ErrorCode errorCode() {
+        return errorCode;
+    }
+
+    /**
+     * @return the failure message, or null if the command succeeded.
+     */
+    public String message() {
+        if (message == null && errorCode != null) {
+            message = tail == null ? prefix + detail + suffix : prefix + detail + suffix + tail;
+        }
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? value().toString() : "Error: " + message();
+    }
+
+}
@@ -0,0 +1,236 @@
+package oop.project.cli;
+
+import oop.project.cli.spec.Command;
+import oop.project.cli.spec.NonNegative;
+import oop.project.cli.spec.NonZero;
+import oop.project.cli.spec.Positional;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The typed result of a successfully parsed command. Each command has its own
+ * record holding primitive fields, so reading a result does not box values or
+ * look them up by key. The parsers for records annotated with {@link Command}
+ * are generated into {@code CommandParsers} at build time.
+ */
+public sealed interface ParsedCommand {
+
+    /**
+     * Builds the map view of this result, matching what {@link Scenarios#parse(String)} returns.
+     *
+     * @return a new immutable map of the result's fields.
+     */
+    Map<String, Object> toMap();
+
+    /**
+     * The result of the "add" command.
+     */
+    @Command(value = "add", calcSubcommand = true,
+            missing = "add command requires exactly two arguments: augend and addend. Only one provided.",
+            tooMany = "add command requires exactly two arguments: augend and addend. Too many provided.")
+    record Add(
+            @Positional(invalid = "The first argument ('{}') is not a valid integer.") int left,
+            @Positional(invalid = "The second argument ('{}') is not a valid integer.") int right
+    ) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("left", left, "right", right);
+        }
+
+    }
+
+    /**
+     * The result of the "sub" command. The left operand is optional, so
+     * {@code hasLeft} records whether it was given.
+     */
+    record Sub(boolean hasLeft, double left, double right) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("left", hasLeft ? left : Optional.empty(), "right", right);
+        }
+
+    }
+
+    /**
+     * The result of the "sqrt" command.
+     */
+    @Command(value = "sqrt", calcSubcommand = true,
+            missing = "Sqrt command requires exactly one non-negative integer argument, but none were provided.",
+            tooMany = "Sqrt command requires exactly one non-negative integer argument, but multiple were provided.")
+    record Sqrt(
+            @Positional(invalid = "Invalid input: '{}' is not a valid integer.")
+            @NonNegative(message = "Sqrt command requires a non-negative integer argument, but received: {}") int number
+    ) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("number", number);
+        }
+
+    }
+
+    /**
+     * The result of the "calc" command.
+     */
+    record Calc(String subcommand) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("subcommand", subcommand);
+        }
+
+    }
+
+    /**
+     * The result of the "date" command.
+     */
+    record Date(LocalDate date) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("date", date);
+        }
+
+    }
+
+    /**
+     * The result of the "time" command.
+     */
+    record Time(LocalTime time) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("time", time);
+        }
+
+    }
+
+    /**
+     * The result of the "mul" command.
+     */
+    @Command(value = "mul", calcSubcommand = true,
+            missing = "Multiply command requires exactly two arguments: multiplicand and multiplier.",
+            tooMany = "Multiply command requires exactly two arguments: multiplicand and multiplier.")
+    record Mul(
+            @Positional(invalid = "Invalid input for multiplicand: '{}' is not a valid number.") double multiplicand,
+            @Positional(invalid = "Invalid input for multiplier: '{}' is not a valid number.") double multiplier
+    ) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("multiplicand", multiplicand, "multiplier", multiplier);
+        }
+
+    }
+
+    /**
+     * The result of the "div" command.
+     */
+    @Command(value = "div", calcSubcommand = true,
+            missing = "Divide command requires exactly two arguments: dividend and divisor.",
+            tooMany = "Divide command requires exactly two arguments: dividend and divisor.")
+    record Div(
+            @Positional(invalid = "Invalid input for dividend: '{}' is not a valid number.") double dividend,
+            @Positional(invalid = "Invalid input for divisor: '{}' is not a valid number.")
+            @NonZero(message = "Divisor cannot be zero.", code = "DIVISION_BY_ZERO") double divisor
+    ) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("dividend", dividend, "divisor", divisor);
+        }
+
+    }
+
+    /**
+     * The result of the "pow" command.
+     */
+    @Command(value = "pow",
+            missing = "Power command requires exactly two arguments: base and exponent.",
+            tooMany = "Power command requires exactly two arguments: base and exponent.")
+    record Pow(
+            @Positional(invalid = "Invalid input for base: '{}' is not a valid number.") double base,
+            @Positional(invalid = "Invalid input for exponent: '{}' is not a valid integer.")
+            @NonNegative(message = "Exponent cannot be negative for power calculation.") int exponent
+    ) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("base", base, "exponent", exponent);
+        }
+
+    }
+
+    /**
+     * The result of the "fact" command.
+     */
+    record Fact(int number, long factorial) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("number", number, "factorial", factorial);
+        }
+
+    }
+
+    /**
+     * The result of the "fact" command when the factorial does not fit in a {@code long}.
+     */
+    record BigFact(int number, BigInteger factorial) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("number", number, "factorial", factorial);
+        }
+
+    }
+
+    /**
+     * The result of the "log" command.
+     */
+    record Log(double number, double logarithm) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("number", number, "logarithm", logarithm);
+        }
+
+    }
+
+    /**
+     * The result of the "calc" command given a quoted expression, holding the
+     * expression text and its value under the supplied variable bindings.
+     */
+    record Expr(String expression, double value) implements ParsedCommand {
+
+        @Override
+        public Map<String, Object> toMap() {
+            return Map.of("expression", expression, "value", value);
+        }
+
+    }
+
+    /**
+     * The result of a command provided by a {@link CommandHandler} registered from outside
+     * this package, holding its fields by name.
+     */
+    record Custom(Map<String, Object> values) implements ParsedCommand {
+
+        public Custom {
+            values = Map.copyOf(values);
+        }
+
+        @Override
+        public Map<String, Object> toMap() {
+            return values;
+        }
+
+    }
+
+}
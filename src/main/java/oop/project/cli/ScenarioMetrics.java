@@ -0,0 +1,161 @@
+package oop.project.cli;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-command counters and latency histograms for {@link Scenarios#tryParse(CharSequence, CommandRegistry)}.
+ * Recording is off by default; while it is off, the parser only reads one
+ * volatile flag per call. It can be switched on with {@link #setEnabled(boolean)},
+ * the {@code oop.project.cli.metrics} system property, or over JMX once
+ * {@link #registerMBean()} has been called.
+ */
+public final class ScenarioMetrics {
+
+    public static final String OBJECT_NAME = "oop.project.cli:type=ScenarioMetrics";
+
+    /**
+     * The name commands are recorded under when their base is not registered.
+     */
+    static final String UNKNOWN = "unknown";
+
+    private static volatile boolean enabled = Boolean.getBoolean("oop.project.cli.metrics");
+
+    private static final Map<String, Counters> COUNTERS = new ConcurrentHashMap<>();
+
+    private ScenarioMetrics() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        ScenarioMetrics.enabled = enabled;
+    }
+
+    /**
+     * Records the outcome of one parse.
+     *
+     * @param handler the handler the command was dispatched to, or null if it was unknown.
+     * @param result the result of the parse.
+     * @param nanos the time the parse took.
+     */
+    static void record(CommandHandler handler, ParseResult result, long nanos) {
+        var name = handler == null ? UNKNOWN : handler.name();
+        var counters = COUNTERS.get(name);
+        if (counters == null) {
+            counters = COUNTERS.computeIfAbsent(name, key -> new Counters());
+        }
+        counters.calls.increment();
+        if (result.isSuccess()) {
+            counters.successes.increment();
+        } else {
+            counters.failures[result.errorCode().ordinal()].increment();
+        }
+        counters.latency.record(nanos);
+    }
+
+    /**
+     * @return a snapshot of the metrics of every command that has been called, ordered by name.
+     */
+    public static List<CommandStatistics> snapshot() {
+        var snapshot = new ArrayList<CommandStatistics>();
+        for (var entry : new TreeMap<>(COUNTERS).entrySet()) {
+            var counters = entry.getValue();
+            var failures = new LinkedHashMap<String, Long>();
+            for (var code : ErrorCode.values()) {
+                long count = counters.failures[code.ordinal()].sum();
+                if (count > 0) {
+                    failures.put(code.name(), count);
+                }
+            }
+            snapshot.add(new CommandStatistics(entry.getKey(), counters.calls.sum(), counters.successes.sum(), failures,
+                    counters.latency.mean() / 1e3,
+                    counters.latency.percentile(0.50) / 1e3,
+                    counters.latency.percentile(0.99) / 1e3));
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the snapshot formatted one command per line.
+     */
+    public static String report() {
+        var report = new StringBuilder();
+        for (var statistics : snapshot()) {
+            report.append(statistics).append('\n');
+        }
+        return report.isEmpty() ? "No commands recorded." + (enabled ? "" : " Metrics are disabled.") : report.toString().stripTrailing();
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public static void reset() {
+        COUNTERS.clear();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, if they are not registered already.
+     */
+    public static synchronized void registerMBean() {
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            var name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new Bean(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    private static final class Counters {
+
+        final LongAdder calls = new LongAdder();
+        final LongAdder successes = new LongAdder();
+        final LongAdder[] failures = new LongAdder[ErrorCode.values().length];
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        Counters() {
+            for (int i = 0; i < failures.length; i++) {
+                failures[i] = new LongAdder();
+            }
+        }
+
+    }
+
+    private static final class Bean implements ScenarioMetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return ScenarioMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            ScenarioMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public List<CommandStatistics> getCommands() {
+            return snapshot();
+        }
+
+        @Override
+        public void reset() {
+            ScenarioMetrics.reset();
+        }
+
+    }
+
+}
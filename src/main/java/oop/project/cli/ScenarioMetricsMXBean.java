@@ -0,0 +1,19 @@
+package oop.project.cli;
+
+import java.util.List;
+
+/**
+ * The JMX view of {@link ScenarioMetrics}, registered as
+ * {@value ScenarioMetrics#OBJECT_NAME}.
+ */
+public interface ScenarioMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    List<CommandStatistics> getCommands();
+
+    void reset();
+
+}
@@ -0,0 +1,334 @@
+package oop.project.cli;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves {@link Scenarios#tryParse(String)} over TCP or a Unix domain socket
+ * with a line protocol: each line received is one command, and each line sent
+ * back is either {@code OK <result>} or {@code ERROR <code> <message>}, in the
+ * order the commands arrived.
+ *
+ * <p>Clients may pipeline, sending further commands before reading the
+ * responses to earlier ones. Responses are buffered and only flushed once
+ * every command already received on the connection has been answered.
+ *
+ * <p>A line longer than {@link #MAX_LINE} characters is answered with
+ * {@code ERROR LINE_TOO_LONG} and the connection is closed, so a client that
+ * never sends a line terminator cannot make the server buffer without bound.
+ *
+ * <p>Each connection is served by its own thread. Virtual threads are used
+ * when the runtime provides them, otherwise platform threads.
+ */
+public final class ScenarioServer implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    /**
+     * The longest line, in characters, that is accepted as a command.
+     */
+    static final int MAX_LINE = 1 << 16;
+
+    /**
+     * How many characters after an over-long line are read and discarded before the connection
+     * is closed. A client still sending after that is reset.
+     */
+    private static final int DISCARD_LIMIT = 1 << 20;
+
+    private final ServerSocketChannel channel;
+    private final SocketAddress address;
+    private final Semaphore permits;
+    private final ExecutorService connections = newConnectionExecutor();
+    private final Set<SocketChannel> active = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    private ScenarioServer(ServerSocketChannel channel, int maxConnections) throws IOException {
+        this.channel = channel;
+        this.address = channel.getLocalAddress();
+        this.permits = new Semaphore(maxConnections);
+        this.acceptor = new Thread(this::accept, "scenario-server-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Starts a server listening on the given address.
+     *
+     * @param address an {@link InetSocketAddress} or {@link UnixDomainSocketAddress}.
+     * @param maxConnections the number of connections served at once; further clients are
+     *                       sent an error line and disconnected.
+     * @return the running server.
+     */
+    public static ScenarioServer start(SocketAddress address, int maxConnections) throws IOException {
+        var channel = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        channel.bind(address);
+        return new ScenarioServer(channel, maxConnections);
+    }
+
+    /**
+     * Parses an address of the form {@code tcp:<port>}, {@code tcp:<host>:<port>} or {@code unix:<path>}.
+     *
+     * @throws IllegalArgumentException if the address is not in one of those forms.
+     */
+    public static SocketAddress parseAddress(String address) {
+        if (address.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(address.substring("unix:".length()));
+        }
+        if (address.startsWith("tcp:")) {
+            var hostAndPort = address.substring("tcp:".length());
+            int colon = hostAndPort.lastIndexOf(':');
+            var host = colon < 0 ? "127.0.0.1" : hostAndPort.substring(0, colon);
+            return new InetSocketAddress(host, Integer.parseInt(hostAndPort.substring(colon + 1)));
+        }
+        throw new IllegalArgumentException("Address must be tcp:[<host>:]<port> or unix:<path>, but was: " + address);
+    }
+
+    /**
+     * @return the address the server is bound to, including the actual port if port 0 was requested.
+     */
+    public SocketAddress address() {
+        return address;
+    }
+
+    private void accept() {
+        while (running) {
+            SocketChannel client;
+            try {
+                client = channel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Failed to accept connection: " + e.getMessage());
+                continue;
+            }
+            if (!permits.tryAcquire()) {
+                reject(client);
+                continue;
+            }
+            active.add(client);
+            connections.execute(() -> {
+                try {
+                    serve(client);
+                } finally {
+                    active.remove(client);
+                    permits.release();
+                }
+            });
+        }
+    }
+
+    private static void reject(SocketChannel client) {
+        try (client) {
+            client.write(StandardCharsets.UTF_8.encode("ERROR TOO_MANY_CONNECTIONS Too many connections.\n"));
+        } catch (IOException ignored) {
+            // The client is being turned away either way.
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try (client) {
+            var reader = new LineReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+            var writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8), BUFFER_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                respond(writer, Scenarios.tryParse(line));
+                if (!reader.ready()) {
+                    writer.flush();
+                }
+            }
+            if (reader.isTooLong()) {
+                writer.write("ERROR LINE_TOO_LONG Line is longer than " + MAX_LINE + " characters.\n");
+                writer.flush();
+                // Closing with unread input resets the connection, which can discard the error
+                // before the client reads it, so end the output and discard what follows first.
+                client.shutdownOutput();
+                reader.discard(DISCARD_LIMIT);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Connection failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void respond(Writer writer, ParseResult result) throws IOException {
+        if (result.isSuccess()) {
+            writer.write("OK ");
+            writer.write(result.value().toString());
+        } else {
+            writer.write("ERROR ");
+            writer.write(result.errorCode().name());
+            writer.write(' ');
+            writer.write(result.message());
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Stops accepting connections and waits for the open ones to be closed by their clients,
+     * closing any that are still open once the timeout has passed.
+     *
+     * @param timeout how long to wait for open connections.
+     */
+    public void shutdown(Duration timeout) throws IOException, InterruptedException {
+        running = false;
+        channel.close();
+        acceptor.join();
+        connections.shutdown();
+        if (!connections.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            for (var client : active) {
+                client.close();
+            }
+            connections.shutdownNow();
+            connections.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (address instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+        }
+    }
+
+    /**
+     * Shuts down, giving open connections five seconds to finish.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            shutdown(Duration.ofSeconds(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks until the server has stopped accepting connections.
+     */
+    public void awaitShutdown() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Reads lines like {@link java.io.BufferedReader#readLine()}, but gives up on a line once it is
+     * longer than {@link #MAX_LINE} characters rather than buffering all of it.
+     */
+    private static final class LineReader {
+
+        private final Reader in;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean skipNewline;
+        private boolean tooLong;
+
+        LineReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next line without its terminator, or null at the end of the stream or if
+         *         the line is too long, which {@link #isTooLong()} then reports.
+         */
+        String readLine() throws IOException {
+            line.setLength(0);
+            while (true) {
+                if (position == limit) {
+                    int read = in.read(buffer);
+                    if (read < 0) {
+                        return line.length() > 0 ? line.toString() : null;
+                    }
+                    position = 0;
+                    limit = read;
+                }
+                if (skipNewline) {
+                    skipNewline = false;
+                    if (buffer[position] == '\n') {
+                        position++;
+                        continue;
+                    }
+                }
+                int start = position;
+                while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                    position++;
+                }
+                if (line.length() + position - start > MAX_LINE) {
+                    tooLong = true;
+                    return null;
+                }
+                line.append(buffer, start, position - start);
+                if (position < limit) {
+                    skipNewline = buffer[position++] == '\r';
+                    return line.toString();
+                }
+            }
+        }
+
+        /**
+         * @return whether a line can be read without blocking, at least in part.
+         */
+        boolean ready() throws IOException {
+            return position < limit || in.ready();
+        }
+
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        /**
+         * Reads and discards input until the end of the stream or until {@code count} more
+         * characters have been read.
+         */
+        void discard(int count) throws IOException {
+            position = limit;
+            for (int read = 0; read < count; ) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    return;
+                }
+                read += n;
+            }
+        }
+
+    }
+
+    /**
+     * Uses {@code Executors.newVirtualThreadPerTaskExecutor()} when the runtime has it, looked up
+     * reflectively so the code still runs on releases without virtual threads.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                var thread = new Thread(runnable, "scenario-server-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+}
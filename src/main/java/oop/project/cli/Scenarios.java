@@ -1,274 +1,372 @@
 package oop.project.cli;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.time.format.ResolverStyle;
 import java.util.*;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
 public class Scenarios {
 
+    private static final CommandRegistry REGISTRY = CommandRegistry.standard();
+    private static final ParseResult UNKNOWN_COMMAND = ParseResult.failure(ErrorCode.UNKNOWN_COMMAND, "Unknown command.");
+
     /**
      * Parses the given command and calls the corresponding method based on the command base.
      *
      * @param command the command to parse
      * @return a map containing the result of the executed command
-     * @throws IllegalArgumentException if the command base is unknown
+     * @throws IllegalArgumentException if the command base is unknown or its arguments are invalid
      */
     public static Map<String, Object> parse(String command) {
-        var trimmedCommand = command.trim();
-        var split = trimmedCommand.split(" ", 2);
-
-        var base = split[0];
-        var arguments = split.length == 2 ? split[1] : "";
-        return switch (base) {
-            case "add" -> add(arguments);
-            case "sub" -> sub(arguments);
-            case "sqrt" -> sqrt(arguments);
-            case "calc" -> calc(arguments);
-            case "date" -> date(arguments);
-            case "mul" -> multiply(arguments);
-            case "div" -> divide(arguments);
-            case "time" -> time(arguments);
-            case "pow" -> power(arguments);
-            case "fact" -> factorial(arguments);
-            case "log" -> logarithm(arguments);
-
-            default -> throw new IllegalArgumentException("Unknown command.");
-        };
+        return tryParse(command).value();
     }
 
-
     /**
-     * Parses the "add" command arguments and returns a map containing the augend and addend.
+     * Parses a command held in any character sequence, such as a {@link StringBuilder} or a
+     * {@link java.nio.CharBuffer}, without first copying it into a string.
      *
-     * @param arguments A string containing two numbers separated by a space.
-     * @return A map containing the augend and addend.
-     * @throws IllegalArgumentException if the number of arguments is not two or if either of the arguments are not a valid integer
+     * @param command the command to parse
+     * @return a map containing the result of the executed command
+     * @throws IllegalArgumentException if the command base is unknown or its arguments are invalid
      */
-    private static Map<String, Object> add(String arguments) {
-        String[] split = arguments.trim().split("\\s+");
+    public static Map<String, Object> parse(CharSequence command) {
+        return tryParse(command, REGISTRY).value();
+    }
 
-        // Check number of arguments
-        if (split.length < 2) {
-            throw new IllegalArgumentException("add command requires exactly two arguments: augend and addend. Only one provided.");
-        }
-        if (split.length > 2) {
-            throw new IllegalArgumentException("add command requires exactly two arguments: augend and addend. Too many provided.");
-        }
+    /**
+     * Parses an ASCII command stored in a byte buffer, reading the bytes in place rather than
+     * decoding the line into a string. The buffer's position and limit are not changed.
+     *
+     * @param buffer the buffer holding the command
+     * @param offset the absolute index of the first byte of the command
+     * @param length the number of bytes in the command
+     * @return a map containing the result of the executed command
+     * @throws IllegalArgumentException if the command base is unknown or its arguments are invalid
+     * @throws IndexOutOfBoundsException if the range is not within the buffer's limit
+     */
+    public static Map<String, Object> parse(ByteBuffer buffer, int offset, int length) {
+        return tryParse(buffer, offset, length).value();
+    }
 
-        try {
-            int left = Integer.parseInt(split[0]);
-            int right = Integer.parseInt(split[1]);
-            return Map.of("left", left, "right", right);
-
-        } catch (NumberFormatException e) {
-            try {
-                Integer.parseInt(split[0]);
-            } catch (NumberFormatException ex) {
-                throw new IllegalArgumentException("The first argument ('" + split[0] + "') is not a valid integer.");
-            }
-            throw new IllegalArgumentException("The second argument ('" + split[1] + "') is not a valid integer.");
-        }
+    /**
+     * Parses the given command into its typed result, avoiding the boxing and lookups of the map view.
+     *
+     * @param command the command to parse
+     * @return the typed result of the executed command
+     * @throws IllegalArgumentException if the command base is unknown or its arguments are invalid
+     */
+    public static ParsedCommand parseTyped(String command) {
+        return tryParse(command).command();
     }
 
+    /**
+     * Parses the given command like {@link #parse(String)}, but reports invalid input through the
+     * returned result instead of throwing. Most failures create no exception object; two paths still
+     * create one and catch it internally. A date or time that the fast parser in {@link DateTimeParsers}
+     * rejects is parsed again with {@code java.time}, whose {@link java.time.format.DateTimeParseException}
+     * supplies the message for an invalid value, and a quoted {@code calc} expression that does not
+     * compile is reported by {@link ExpressionCompiler} as an {@link IllegalArgumentException}.
+     *
+     * @param command the command to parse
+     * @return the result of the executed command, or an error code and message if it was rejected
+     */
+    public static ParseResult tryParse(String command) {
+        return tryParse(command, REGISTRY);
+    }
 
     /**
-     * Method to subtract two numbers.
+     * Parses an ASCII command stored in a byte buffer like {@link #parse(ByteBuffer, int, int)},
+     * but reports invalid input through the returned result instead of throwing.
      *
-     * @param arguments A string containing two numbers separated by a space.
-     * @return A map containing the minuend and subtrahend.
-     * @throws IllegalArgumentException if the number of arguments is not two, not in a valid format, if the arguments are not valid numbers.
+     * @param buffer the buffer holding the command
+     * @param offset the absolute index of the first byte of the command
+     * @param length the number of bytes in the command
+     * @return the result of the executed command, or an error code and message if it was rejected
+     * @throws IndexOutOfBoundsException if the range is not within the buffer's limit
      */
-    static Map<String, Object> sub(String arguments) {
-        Pattern pattern = Pattern.compile("^\\s*(?:--left\\s(\\d+(\\.\\d+)?)\\s*)?--right\\s(\\d+(\\.\\d+)?)\\s*$");
+    public static ParseResult tryParse(ByteBuffer buffer, int offset, int length) {
+        return tryParse(new AsciiSequence(buffer, offset, length), REGISTRY);
+    }
 
-        Matcher matcher = pattern.matcher(arguments);
+    /**
+     * Parses the given command against a custom set of commands.
+     *
+     * @param command the command to parse
+     * @param registry the commands to dispatch to
+     * @return the result of the executed command, or an error code and message if it was rejected
+     */
+    public static ParseResult tryParse(CharSequence command, CommandRegistry registry) {
+        // The event is never allocated once compiled: when it is disabled it does not escape.
+        var event = new ParseEvent();
+        if (event.isEnabled() || ScenarioMetrics.isEnabled()) {
+            return traced(event, command, registry);
+        }
+        var arguments = ArgumentTokenizer.of(command);
+        var handler = arguments.command(registry);
+        return handler == null ? UNKNOWN_COMMAND : handler.parse(arguments);
+    }
 
-        if (!matcher.matches()) {
-            if (!arguments.contains("--right")) {
-                throw new IllegalArgumentException("Missing mandatory '--right' argument.");
+    /**
+     * The path taken by {@link #tryParse(CharSequence, CommandRegistry)} when {@link ScenarioMetrics}
+     * or the {@link ParseEvent} JFR event is enabled, timing each phase of the parse.
+     */
+    private static ParseResult traced(ParseEvent event, CharSequence command, CommandRegistry registry) {
+        boolean recording = event.isEnabled();
+        event.begin();
+        long start = System.nanoTime();
+        var arguments = ArgumentTokenizer.of(command);
+        var handler = arguments.command(registry);
+        long tokenized = System.nanoTime();
+        var result = handler == null ? UNKNOWN_COMMAND : handler.parse(arguments);
+        long validated = System.nanoTime();
+        if (ScenarioMetrics.isEnabled()) {
+            ScenarioMetrics.record(handler, result, validated - start);
+        }
+        if (recording) {
+            // Build the result map now, which would otherwise happen lazily, so its cost is attributed.
+            if (result.isSuccess()) {
+                result.value();
             }
-            if (arguments.matches(".*\\s--\\w+\\s.*")) {
-                throw new IllegalArgumentException("Invalid or extraneous argument detected.");
+            long built = System.nanoTime();
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = handler == null ? ScenarioMetrics.UNKNOWN : handler.name();
+                event.inputLength = command.length();
+                event.outcome = result.isSuccess() ? "SUCCESS" : result.errorCode().name();
+                event.tokenizeNanos = tokenized - start;
+                event.validateNanos = validated - tokenized;
+                event.buildNanos = built - validated;
+                event.commit();
             }
-            throw new IllegalArgumentException("Invalid command format.");
         }
+        return result;
+    }
 
-        Map<String, Object> resultMap = new HashMap<>();
-        String leftGroup = matcher.group(1);
-        String rightGroup = matcher.group(3);
-
-        resultMap.put("left", leftGroup != null ? Double.parseDouble(leftGroup) : Optional.empty());
-        resultMap.put("right", Double.parseDouble(rightGroup));
-
-        return resultMap;
+    /**
+     * @return the standard registry used by {@link #parse(String)}: the built-in commands plus any
+     *         handlers provided through {@link java.util.ServiceLoader}.
+     */
+    public static CommandRegistry registry() {
+        return REGISTRY;
     }
 
     /**
-     * Calculates the square root of a non-negative integer.
+     * Parses a batch of independent commands, using the common fork-join pool for large batches.
      *
-     * @param arguments A string representing the number to calculate the square root of.
-     * @return A map containing the number.
-     * @throws IllegalArgumentException if there are too many arguments, no arguments, or the argument is negative/not a valid integer.
+     * @param commands the commands to parse
+     * @return the result of each command, in input order; a failing command is captured in its own
+     *         result and does not abort the batch
      */
-    static Map<String, Object> sqrt(String arguments) {
-        String[] numbers = arguments.trim().split("\\s+");
-        if (numbers.length == 0) {
-            throw new IllegalArgumentException("Sqrt command requires exactly one non-negative integer argument, but none were provided.");
-        }
-        if (numbers.length > 1) {
-            throw new IllegalArgumentException("Sqrt command requires exactly one non-negative integer argument, but multiple were provided.");
-        }
-
-        int number;
-        try {
-            number = Integer.parseInt(numbers[0]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid input: '" + numbers[0] + "' is not a valid integer.");
-        }
+    public static List<ParseResult> parseBatch(List<String> commands) {
+        return parseBatch(commands, ForkJoinPool.commonPool());
+    }
 
-        if (number < 0) {
-            throw new IllegalArgumentException("Sqrt command requires a non-negative integer argument, but received: " + number);
-        }
+    /**
+     * Parses a batch of independent commands on the given pool. Batches smaller than
+     * {@link BatchParser#SEQUENTIAL_THRESHOLD} are parsed on the calling thread.
+     *
+     * @param commands the commands to parse
+     * @param pool the pool to split the work across
+     * @return the result of each command, in input order
+     */
+    public static List<ParseResult> parseBatch(List<String> commands, ForkJoinPool pool) {
+        return BatchParser.parse(commands, pool);
+    }
 
-        return Map.of("number", number);
+    /**
+     * Parses every command in the stream as a batch.
+     *
+     * @param commands the commands to parse
+     * @return the result of each command, in encounter order
+     * @see #parseBatch(List)
+     */
+    public static List<ParseResult> parseAll(Stream<String> commands) {
+        return parseBatch(commands.toList());
     }
 
+
     /**
-     * This method is used to perform various calculations based on the given subcommand.
+     * Method to subtract two numbers.
+     *
+     * The arguments take the form {@code [--left <number>] --right <number>}, where each number
+     * is an unsigned decimal with an optional fractional part.
      *
-     * @param arguments A string representing the subcommand.
-     * @return A map containing the subcommand as the "subcommand" key.
-     * @throws IllegalArgumentException if no subcommand is provided or the subcommand is not one of the valid options: add, sub, sqrt, mul, or div.
+     * @param arguments The arguments, containing the flags and their values.
+     * @return A result holding the minuend and subtrahend, or a failure if the number of arguments is not two, not in a valid format, if the arguments are not valid numbers.
      */
-    static Map<String, Object> calc(String arguments) {
-        String trimmedArgs = arguments.trim();
-        if (trimmedArgs.isEmpty()) {
-            throw new IllegalArgumentException("No subcommand provided. Valid subcommands are: add, sub, sqrt, mul, or div.");
+    static ParseResult sub(ArgumentTokenizer arguments) {
+        int start = arguments.mark();
+        arguments.skipWhitespace();
+        int left = -1;
+        int leftEnd = 0;
+        int right = -1;
+
+        boolean valid = true;
+        if (arguments.consume("--left")) {
+            valid = arguments.skipWhitespaceChar() && (left = arguments.decimal()) >= 0;
+            leftEnd = arguments.mark();
+            arguments.skipWhitespace();
         }
-
-        if (!Arrays.asList("add", "sub", "sqrt", "mul", "div").contains(trimmedArgs)) {
-            throw new IllegalArgumentException("Invalid subcommand '" + trimmedArgs + "'. Valid subcommands are: add, sub, sqrt, mul, or div.");
+        valid = valid
+                && arguments.consume("--right")
+                && arguments.skipWhitespaceChar()
+                && (right = arguments.decimal()) >= 0;
+        int rightEnd = arguments.mark();
+        arguments.skipWhitespace();
+
+        if (!valid || !arguments.atEnd()) {
+            arguments.reset(start);
+            if (!arguments.contains("--right")) {
+                return ParseResult.failure(ErrorCode.MISSING_ARGUMENT, "Missing mandatory '--right' argument.");
+            }
+            if (arguments.containsEmbeddedFlag()) {
+                return ParseResult.failure(ErrorCode.TOO_MANY_ARGUMENTS, "Invalid or extraneous argument detected.");
+            }
+            return ParseResult.failure(ErrorCode.INVALID_FORMAT, "Invalid command format.");
         }
 
-        return Map.of("subcommand", trimmedArgs);
+        // Both values are plain decimals at this point, so they always parse.
+        boolean hasLeft = left >= 0;
+        double leftValue = hasLeft ? Double.longBitsToDouble(arguments.parseDoubleBits(left, leftEnd)) : 0;
+        double rightValue = Double.longBitsToDouble(arguments.parseDoubleBits(right, rightEnd));
+        return ParseResult.success(new ParsedCommand.Sub(hasLeft, leftValue, rightValue));
     }
 
     /**
-     * Parses a date string in the format yyyy-MM-dd and returns a map containing the parsed date.
+     * This method is used to perform various calculations based on the given subcommand.
+     * The valid subcommands are the registered commands marked as {@link CommandHandler#calcSubcommand()},
+     * which for the built-in commands are add, sub, sqrt, mul, and div. A quoted expression is evaluated
+     * instead, see {@link #expression(String)}.
      *
-     * @param arguments A string representing the date to parse.
-     * @return A map containing the parsed date as the "date" key.
-     * @throws IllegalArgumentException if the date is in an invalid format or the date has an invalid value.
+     * @param arguments The arguments, containing the subcommand.
+     * @return A result holding the subcommand as the "subcommand" key, or a failure if no subcommand is provided or the subcommand is not one of the valid options.
      */
-    static Map<String, Object> date(String arguments) {
+    static ParseResult calc(ArgumentTokenizer arguments) {
+        var registry = arguments.registry();
+        String trimmedArgs = arguments.rest();
+        if (trimmedArgs.isEmpty()) {
+            return ParseResult.failure(ErrorCode.MISSING_ARGUMENT, "No subcommand provided. ", registry.calcSubcommands(), "");
+        }
 
-        String trimmedDateString = arguments.trim();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("uuuu-MM-dd").withResolverStyle(ResolverStyle.STRICT);
+        if (trimmedArgs.charAt(0) == '"') {
+            return expression(trimmedArgs);
+        }
 
-        try {
-            LocalDate date = LocalDate.parse(trimmedDateString, formatter);
-            return Map.of("date", date);
-        } catch (DateTimeParseException e) {
-            if (!arguments.matches("\\d{4}-\\d{2}-\\d{2}")) {
-                throw new IllegalArgumentException("Invalid date format. Date must strictly follow the yyyy-MM-dd pattern (e.g., 2021-03-15).");
-            }
-            throw new IllegalArgumentException("Invalid date value: " + e.getMessage());
+        var subcommand = registry.lookup(trimmedArgs);
+        if (subcommand == null || !subcommand.calcSubcommand()) {
+            return ParseResult.failure(ErrorCode.INVALID_SUBCOMMAND, "Invalid subcommand '", trimmedArgs, "'. ", registry.calcSubcommands());
         }
+
+        return ParseResult.success(new ParsedCommand.Calc(trimmedArgs));
     }
 
     /**
-     * Divides two numbers and returns a map containing the dividend and divisor.
+     * Evaluates a quoted expression followed by {@code name=value} bindings, such as
+     * {@code "sqrt(x) * pow(y, 3) / 2" x=4 y=2}. Compiled expressions are cached by
+     * their text, so repeating an expression with new bindings does not parse it again.
      *
-     * @param arguments A string containing two numbers separated by a space.
-     * @return A map containing the dividend and divisor.
-     * @throws IllegalArgumentException if the number of arguments is not two, the divisor is 0, the divisor is not valid, or if the dividend is not valid.
+     * @param arguments The quoted expression and its bindings.
+     * @return A result holding the expression and its value, or a failure if the expression is
+     * malformed, a binding is not a valid number, or a variable is unbound or unknown.
      */
-    static Map<String, Object> divide(String arguments){
-        String[] split = arguments.trim().split("\\s+");
-
-        if (split.length != 2) {
-            throw new IllegalArgumentException("Divide command requires exactly two arguments: dividend and divisor.");
+    private static ParseResult expression(String arguments) {
+        int close = arguments.indexOf('"', 1);
+        if (close < 0) {
+            return ParseResult.failure(ErrorCode.INVALID_FORMAT, "Unterminated expression: missing closing quote.");
         }
-
-        double left;
-        double right;
-
+        var text = arguments.substring(1, close);
+        Expression expression;
         try {
-            left = Double.parseDouble(split[0]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid input for dividend: '" + split[0] + "' is not a valid number.");
+            expression = Expression.compile(text);
+        } catch (IllegalArgumentException e) {
+            return ParseResult.failure(ErrorCode.INVALID_FORMAT, "Invalid expression: ", e.getMessage(), "");
         }
 
-        try {
-            right = Double.parseDouble(split[1]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid input for divisor: '" + split[1] + "' is not a valid number.");
+        var variables = expression.variables();
+        var values = new double[variables.size()];
+        var bound = new boolean[values.length];
+        var bindings = ArgumentTokenizer.of(arguments.substring(close + 1));
+        String binding;
+        while ((binding = bindings.next()) != null) {
+            int equals = binding.indexOf('=');
+            if (equals <= 0) {
+                return ParseResult.failure(ErrorCode.INVALID_FORMAT, "Invalid binding '", binding, "'. Bindings must take the form name=value.");
+            }
+            int slot = variables.indexOf(binding.substring(0, equals));
+            if (slot < 0) {
+                return ParseResult.failure(ErrorCode.INVALID_VALUE, "Unknown variable '", binding.substring(0, equals), "'.");
+            }
+            long bits = NumberParser.parseDoubleBits(binding, equals + 1, binding.length());
+            if (bits == NumberParser.INVALID_DOUBLE) {
+                return ParseResult.failure(ErrorCode.INVALID_NUMBER, "Invalid binding '", binding, "': the value is not a valid number.");
+            }
+            values[slot] = Double.longBitsToDouble(bits);
+            bound[slot] = true;
         }
-
-        if (right == 0) {
-            throw new IllegalArgumentException("Divisor cannot be zero.");
+        for (int i = 0; i < bound.length; i++) {
+            if (!bound[i]) {
+                return ParseResult.failure(ErrorCode.MISSING_ARGUMENT, "Missing value for variable '", variables.get(i), "'.");
+            }
         }
-
-        return Map.of("dividend", left, "divisor", right);
+        return ParseResult.success(new ParsedCommand.Expr(text, expression.evaluate(values)));
     }
 
     /**
-     * Method to multiply two numbers.
+     * Parses a date string in the format yyyy-MM-dd and returns the parsed date.
      *
-     * @param arguments A string containing two numbers separated by a space.
-     * @return A map containing the multiplicand and multiplier.
-     * @throws IllegalArgumentException if the number of arguments is not two, or if either of the arguments are not valid numbers.
+     * @param arguments The arguments, containing the date to parse.
+     * @return A result holding the parsed date as the "date" key, or a failure if the date is in an invalid format or the date has an invalid value.
      */
-    static Map<String, Object> multiply(String arguments) {
-        String[] split = arguments.trim().split("\\s+");
+    static ParseResult date(ArgumentTokenizer arguments) {
 
-        if (split.length != 2) {
-            throw new IllegalArgumentException("Multiply command requires exactly two arguments: multiplicand and multiplier.");
+        int start = arguments.mark();
+        CharSequence trimmedDateString = arguments.restSequence();
+        LocalDate parsed = DateTimeParsers.parseDate(trimmedDateString);
+        if (parsed != null) {
+            return ParseResult.success(new ParsedCommand.Date(parsed));
         }
 
-        double left;
-        double right;
-
         try {
-            left = Double.parseDouble(split[0]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid input for multiplicand: '" + split[0] + "' is not a valid number.");
-        }
-
-        try {
-            right = Double.parseDouble(split[1]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid input for multiplier: '" + split[1] + "' is not a valid number.");
+            LocalDate date = LocalDate.parse(trimmedDateString, DateTimeParsers.DATE_FORMAT);
+            return ParseResult.success(new ParsedCommand.Date(date));
+        } catch (DateTimeParseException e) {
+            // The format is checked on the argument as given, so extra whitespace before the date is a format error.
+            arguments.reset(start);
+            if (!isValidDateFormat(arguments.remaining())) {
+                return ParseResult.failure(ErrorCode.INVALID_FORMAT, "Invalid date format. Date must strictly follow the yyyy-MM-dd pattern (e.g., 2021-03-15).");
+            }
+            return ParseResult.failure(ErrorCode.INVALID_VALUE, "Invalid date value: ", e.getMessage(), "");
         }
-
-        return Map.of("multiplicand", left, "multiplier", right);
     }
 
     /**
-     * Parses a time string in the format HH:mm:ss and returns a map containing the parsed time.
+     * Parses a time string in the format HH:mm:ss and returns the parsed time.
      *
-     * @param timeString A string representing the time to parse.
-     * @return A map containing the parsed time as the "time" key.
-     * @throws IllegalArgumentException if the time is in an invalid format or the time has an invalid value.
+     * @param arguments The arguments, containing the time to parse.
+     * @return A result holding the parsed time as the "time" key, or a failure if the time is in an invalid format or the time has an invalid value.
      */
-    static Map<String, Object> time(String timeString) {
+    static ParseResult time(ArgumentTokenizer arguments) {
 
-        String trimmedTimeString = timeString.trim();
+        CharSequence trimmedTimeString = arguments.restSequence();
 
         if (!isValidTimeFormat(trimmedTimeString )) {
-            throw new IllegalArgumentException("Invalid time format. Time must be in the format HH:mm:ss, like '23:59:59'.");
+            return ParseResult.failure(ErrorCode.INVALID_FORMAT, "Invalid time format. Time must be in the format HH:mm:ss, like '23:59:59'.");
+        }
+
+        LocalTime parsed = DateTimeParsers.parseTime(trimmedTimeString);
+        if (parsed != null) {
+            return ParseResult.success(new ParsedCommand.Time(parsed));
         }
 
         try {
-            LocalTime time = LocalTime.parse(trimmedTimeString , DateTimeFormatter.ofPattern("HH:mm:ss"));
-            return Map.of("time", time);
+            LocalTime time = LocalTime.parse(trimmedTimeString , DateTimeParsers.TIME_FORMAT);
+            return ParseResult.success(new ParsedCommand.Time(time));
         } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Invalid date value: " + e.getMessage());
+            return ParseResult.failure(ErrorCode.INVALID_VALUE, "Invalid date value: ", e.getMessage(), "");
         }
     }
 
@@ -279,96 +377,87 @@ public class Scenarios {
      * @return true if the time string is in the valid format, false otherwise.
      */
 
-    static boolean isValidTimeFormat(String timeString) {
-        String expectedFormat = "\\d{2}:\\d{2}:\\d{2}";
-
-        return timeString.matches(expectedFormat);
+    static boolean isValidTimeFormat(CharSequence timeString) {
+        return matchesFixedWidth(timeString, "##:##:##");
     }
 
     /**
-     * Method to calculate the power of a number.
+     * Checks if the given date string is in a valid format.
      *
-     * @param arguments A string containing two numbers separated by a space.
-     * @return A map containing the base and exponent.
-     * @throws IllegalArgumentException if the number of arguments is not two, if the exponent is negative, or if either the base or exponent is not valid.
+     * @param dateString A string representing the date in the format yyyy-MM-dd.
+     * @return true if the date string is in the valid format, false otherwise.
      */
-    static Map<String, Object> power(String arguments) {
-        String[] split = arguments.trim().split("\\s+");
-
-        if (split.length != 2) {
-            throw new IllegalArgumentException("Power command requires exactly two arguments: base and exponent.");
-        }
-
-        double base;
-        int exponent;
-
-        try {
-            base = Double.parseDouble(split[0]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid input for base: '" + split[0] + "' is not a valid number.");
-        }
+    static boolean isValidDateFormat(CharSequence dateString) {
+        return matchesFixedWidth(dateString, "####-##-##");
+    }
 
-        try {
-            exponent = Integer.parseInt(split[1]);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid input for exponent: '" + split[1] + "' is not a valid integer.");
+    /**
+     * Checks that the text has the same length as the shape and matches it character by character,
+     * where '#' stands for any ASCII digit and every other character must match exactly.
+     */
+    private static boolean matchesFixedWidth(CharSequence text, String shape) {
+        if (text.length() != shape.length()) {
+            return false;
         }
-
-        if (exponent < 0) {
-            throw new IllegalArgumentException("Exponent cannot be negative for power calculation.");
+        for (int i = 0; i < shape.length(); i++) {
+            char expected = shape.charAt(i);
+            char actual = text.charAt(i);
+            if (expected == '#' ? !ArgumentTokenizer.isDigit(actual) : actual != expected) {
+                return false;
+            }
         }
-
-        return Map.of("base", base, "exponent", exponent);
+        return true;
     }
 
     /**
-     * Method to calculate the factorial of a number.
+     * Method to calculate the factorial of a number. Factorials up to 20! are returned as a
+     * {@code long}; larger ones, up to {@link Factorials#MAX}!, are computed as a {@link java.math.BigInteger}.
      *
-     * @param arguments A string containing a number.
-     * @return A map containing the number and its factorial.
-     * @throws IllegalArgumentException if the number is negative or not a valid integer.
+     * @param arguments The arguments, containing a number.
+     * @return A result holding the number and its factorial, or a failure if the number is negative, too large, or not a valid integer.
      */
-    static Map<String, Object> factorial(String arguments) {
-        int number;
-        try {
-            number = Integer.parseInt(arguments.trim());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Factorial command requires a valid integer argument.");
+    static ParseResult factorial(ArgumentTokenizer arguments) {
+        int start = arguments.skipRest();
+        long parsed = arguments.parseInt(start, arguments.mark());
+        if (parsed == NumberParser.INVALID_INT) {
+            return ParseResult.failure(ErrorCode.INVALID_INTEGER, "Factorial command requires a valid integer argument.");
         }
+        int number = (int) parsed;
 
         if (number < 0) {
-            throw new IllegalArgumentException("Factorial command requires a non-negative integer argument.");
+            return ParseResult.failure(ErrorCode.OUT_OF_RANGE, "Factorial command requires a non-negative integer argument.");
         }
 
-        long factorial = 1;
-        for (int i = 2; i <= number; i++) {
-            factorial *= i;
+        if (number <= Factorials.MAX_LONG) {
+            return ParseResult.success(new ParsedCommand.Fact(number, Factorials.longValue(number)));
+        }
+        if (number > Factorials.MAX) {
+            return ParseResult.failure(ErrorCode.OUT_OF_RANGE, "Factorial command accepts numbers up to ", Factorials.MAX, ".");
         }
-        return Map.of("number", number, "factorial", factorial);
+        return ParseResult.success(new ParsedCommand.BigFact(number, Factorials.bigValue(number)));
     }
 
     /**
      * Method to calculate the logarithm of a number.
      *
-     * @param arguments A string containing a number.
-     * @return A map containing the number and its logarithm.
-     * @throws IllegalArgumentException if the number is negative or not a valid number.
+     * @param arguments The arguments, containing a number.
+     * @return A result holding the number and its logarithm, or a failure if the number is negative or not a valid number.
      */
-    static Map<String, Object> logarithm(String arguments) {
-        double number;
-        try {
-            number = Double.parseDouble(arguments.trim());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Logarithm command requires a valid number argument.");
+    static ParseResult logarithm(ArgumentTokenizer arguments) {
+        int start = arguments.skipRest();
+        long bits = arguments.parseDoubleBits(start, arguments.mark());
+        if (bits == NumberParser.INVALID_DOUBLE) {
+            return ParseResult.failure(ErrorCode.INVALID_NUMBER, "Logarithm command requires a valid number argument.");
         }
+        double number = Double.longBitsToDouble(bits);
 
         if (number <= 0) {
-            throw new IllegalArgumentException("Logarithm command requires a positive number argument.");
+            return ParseResult.failure(ErrorCode.OUT_OF_RANGE, "Logarithm command requires a positive number argument.");
         }
 
         double result = Math.log(number);
 
-        return Map.of("number", number, "logarithm", result);
+        return ParseResult.success(new ParsedCommand.Log(number, result));
     }
 
 }
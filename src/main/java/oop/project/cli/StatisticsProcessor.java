@@ -0,0 +1,219 @@
+package oop.project.cli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads a stream of numbers into {@link StreamingStatistics}. Numbers are
+ * separated by any whitespace, including line breaks, and are parsed in place
+ * with {@link NumberParser}, accepting anything {@link Double#parseDouble(String)}
+ * accepts except NaN. Anything else is counted as rejected and skipped, as is
+ * any token longer than {@link #MAX_TOKEN} characters.
+ *
+ * <p>Input is read in fixed-size blocks regardless of where lines end, and a
+ * token cut off at the end of a block is carried over to the next one, so a
+ * single line of numbers does not have to fit in memory. A file is split into
+ * one range per thread, at whitespace. Each thread maps its range one chunk
+ * at a time into its own statistics, and the partial results are merged at
+ * the end, so memory use depends on the thread count but not on the size of
+ * the file or the length of its lines.
+ */
+final class StatisticsProcessor {
+
+    /**
+     * The statistics of the accepted numbers, and how many tokens were rejected.
+     */
+    record Summary(StreamingStatistics statistics, long rejected) {}
+
+    /**
+     * The longest token that is parsed. No number needs more, and a longer token
+     * would have to be held in memory as it is carried across blocks.
+     */
+    static final int MAX_TOKEN = 1 << 12;
+
+    private static final int SCAN_WINDOW = 1 << 16;
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private StatisticsProcessor() {}
+
+    static Summary process(Reader reader) throws IOException {
+        var tokens = new Tokens();
+        var block = new char[BLOCK_SIZE];
+        var text = CharBuffer.wrap(block);
+        int read;
+        while ((read = reader.read(block)) >= 0) {
+            tokens.accept(text, 0, read);
+        }
+        return tokens.finish();
+    }
+
+    static Summary process(Path input, int threads) throws IOException, InterruptedException {
+        return process(input, threads, FileProcessor.CHUNK_SIZE);
+    }
+
+    static Summary process(Path input, int threads, int chunkSize) throws IOException, InterruptedException {
+        var executor = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "statistics-processor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (var channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            var ranges = new ArrayList<Callable<Summary>>();
+            long start = 0;
+            for (int i = 1; i <= threads; i++) {
+                long end = i == threads ? size : separator(channel, Math.max(start, size * i / threads), size);
+                long from = start;
+                ranges.add(() -> process(channel, from, end, chunkSize));
+                start = end;
+            }
+
+            var statistics = new StreamingStatistics();
+            long rejected = 0;
+            for (var future : executor.invokeAll(ranges)) {
+                var partial = future.get();
+                statistics.merge(partial.statistics());
+                rejected += partial.rejected();
+            }
+            return new Summary(statistics, rejected);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to process range", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Aggregates the tokens in {@code [start, end)}, which begin and end at whitespace,
+     * mapping at most one chunk at a time.
+     */
+    private static Summary process(FileChannel channel, long start, long end, int chunkSize) throws IOException {
+        var tokens = new Tokens();
+        while (start < end) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, end - start));
+            tokens.accept(new AsciiSequence(buffer, 0, buffer.limit()), 0, buffer.limit());
+            start += buffer.limit();
+        }
+        return tokens.finish();
+    }
+
+    /**
+     * Finds the first position at or after {@code from} that follows whitespace, so that
+     * no token spans it, scanning forward in small mapped windows.
+     */
+    static long separator(FileChannel channel, long from, long size) throws IOException {
+        if (from == 0 || from == size) {
+            return from;
+        }
+        for (long window = from - 1; window < size; window += SCAN_WINDOW) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, window, Math.min(SCAN_WINDOW, size - window));
+            for (int i = 0; i < buffer.limit(); i++) {
+                if ((buffer.get(i) & 0xFF) <= ' ') {
+                    return window + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Splits blocks of text into tokens and adds the numbers among them to the statistics.
+     * A token that reaches the end of a block is held back until the next block shows
+     * whether it continues.
+     */
+    private static final class Tokens {
+
+        private final StreamingStatistics statistics = new StreamingStatistics();
+        private long rejected;
+        private char[] partial = new char[64];
+        private int partialLength;
+        private boolean overlong;
+
+        void accept(CharSequence text, int start, int end) {
+            int i = start;
+            if (partialLength > 0 || overlong) {
+                while (i < end && text.charAt(i) > ' ') {
+                    hold(text.charAt(i++));
+                }
+                if (i == end) {
+                    return;
+                }
+                flush();
+            }
+            while (true) {
+                while (i < end && text.charAt(i) <= ' ') {
+                    i++;
+                }
+                if (i == end) {
+                    return;
+                }
+                int token = i;
+                while (i < end && text.charAt(i) > ' ') {
+                    i++;
+                }
+                if (i == end) {
+                    for (int j = token; j < end; j++) {
+                        hold(text.charAt(j));
+                    }
+                    return;
+                }
+                add(text, token, i);
+            }
+        }
+
+        Summary finish() {
+            flush();
+            return new Summary(statistics, rejected);
+        }
+
+        private void hold(char c) {
+            if (overlong) {
+                return;
+            }
+            if (partialLength == MAX_TOKEN) {
+                overlong = true;
+                partialLength = 0;
+                return;
+            }
+            if (partialLength == partial.length) {
+                partial = Arrays.copyOf(partial, Math.min(MAX_TOKEN, partial.length * 2));
+            }
+            partial[partialLength++] = c;
+        }
+
+        private void flush() {
+            if (overlong) {
+                rejected++;
+                overlong = false;
+            } else if (partialLength > 0) {
+                add(CharBuffer.wrap(partial, 0, partialLength), 0, partialLength);
+                partialLength = 0;
+            }
+        }
+
+        private void add(CharSequence text, int start, int end) {
+            if (end - start > MAX_TOKEN) {
+                rejected++;
+                return;
+            }
+            long bits = NumberParser.parseDoubleBits(text, start, end);
+            double value = Double.longBitsToDouble(bits);
+            if (bits == NumberParser.INVALID_DOUBLE || Double.isNaN(value)) {
+                rejected++;
+            } else {
+                statistics.add(value);
+            }
+        }
+
+    }
+
+}
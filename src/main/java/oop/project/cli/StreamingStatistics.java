@@ -0,0 +1,316 @@
+package oop.project.cli;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics over a stream of numbers, computed incrementally in
+ * constant memory: count, sum, mean, variance, minimum, maximum and
+ * approximate quantiles. All state is held in primitive fields and arrays
+ * sized when the instance is created, so adding a value never allocates.
+ *
+ * <ul>
+ *     <li>The sum uses Neumaier's compensated summation, so it does not lose the
+ *     small values of a long stream to rounding.</li>
+ *     <li>The mean and variance use Welford's update, which stays accurate when
+ *     the values are large compared to their spread.</li>
+ *     <li>Quantiles come from a merging t-digest with the {@code k1} (arcsine)
+ *     scale function. Incoming values are buffered, then sorted and merged into
+ *     at most about {@code compression} centroids. Centroids near the tails
+ *     hold fewer values, so extreme quantiles are more accurate than the median.</li>
+ * </ul>
+ *
+ * <p>Instances are not thread-safe. To split a large input across threads,
+ * give each thread its own instance and combine them with {@link #merge}.
+ */
+public final class StreamingStatistics {
+
+    /**
+     * The default compression, which keeps quantile errors around a tenth of a percent of rank
+     * in the middle of the distribution and much smaller at the tails.
+     */
+    public static final int DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+
+    private long count;
+    private double sum;
+    private double compensation;
+    private double mean;
+    private double squaredDeviations;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private final double[] means;
+    private final double[] weights;
+    private int centroids;
+    private final double[] buffer;
+    private int buffered;
+    private final double[] mergedMeans;
+    private final double[] mergedWeights;
+
+    public StreamingStatistics() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression bounds the number of centroids, trading memory for quantile accuracy.
+     */
+    public StreamingStatistics(int compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compression must be at least 10, but was " + compression + ".");
+        }
+        this.compression = compression;
+        // The k1 scale spans compression / 2 units and every two consecutive centroids cover
+        // more than one unit, so a merge produces at most about compression centroids.
+        int capacity = compression * 2;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[compression * 5];
+        this.mergedMeans = new double[capacity];
+        this.mergedWeights = new double[capacity];
+    }
+
+    /**
+     * Adds one value. NaN values are ignored, since they have no place in an ordering.
+     *
+     * @param value the value to add.
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        addToSum(value);
+        double delta = value - mean;
+        mean += delta / count;
+        squaredDeviations += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        buffer[buffered++] = value;
+        if (buffered == buffer.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Adds every value summarized by another instance to this one, as if they had
+     * been added here. The other instance is left unchanged, apart from having its
+     * own buffered values merged into its centroids.
+     *
+     * @param other the statistics to merge in.
+     * @return this instance.
+     */
+    public StreamingStatistics merge(StreamingStatistics other) {
+        if (other.count == 0) {
+            return this;
+        }
+        other.flush();
+        flush();
+        if (count == 0) {
+            mean = other.mean;
+            squaredDeviations = other.squaredDeviations;
+        } else {
+            // Chan et al.'s pairwise update of the mean and the sum of squared deviations.
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            squaredDeviations += other.squaredDeviations + delta * delta * ((double) count * other.count / total);
+        }
+        count += other.count;
+        addToSum(other.sum);
+        if (Double.isFinite(other.sum)) {
+            addToSum(other.compensation);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        mergeCentroids(other.means, other.weights, other.centroids);
+        return this;
+    }
+
+    /**
+     * @return the number of values added.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return the sum of the values, or 0 if there are none.
+     */
+    public double sum() {
+        // The compensation is meaningless once the sum has overflowed.
+        return Double.isFinite(sum) ? sum + compensation : sum;
+    }
+
+    /**
+     * @return the mean of the values, or NaN if there are none.
+     */
+    public double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return the sample variance of the values, with Bessel's correction, or NaN if
+     *         there are fewer than two.
+     */
+    public double variance() {
+        return count < 2 ? Double.NaN : squaredDeviations / (count - 1);
+    }
+
+    /**
+     * @return the sample standard deviation, or NaN if there are fewer than two values.
+     */
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * @return the smallest value, or NaN if there are none.
+     */
+    public double min() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * @return the largest value, or NaN if there are none.
+     */
+    public double max() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Estimates a quantile by interpolating between the centroids around its rank.
+     * The minimum and maximum are exact.
+     *
+     * @param q the quantile, between 0 and 1 inclusive.
+     * @return the estimated value at that quantile, or NaN if there are no values.
+     */
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1, but was " + q + ".");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        flush();
+        double rank = q * count;
+        // Below the center of the first centroid, or above the center of the last one,
+        // interpolate towards the exact extremes.
+        if (rank < weights[0] / 2) {
+            return interpolate(min, means[0], rank / (weights[0] / 2));
+        }
+        int last = centroids - 1;
+        if (rank > count - weights[last] / 2) {
+            return interpolate(means[last], max, (rank - (count - weights[last] / 2)) / (weights[last] / 2));
+        }
+        double center = weights[0] / 2;
+        for (int i = 0; i < last; i++) {
+            double next = center + (weights[i] + weights[i + 1]) / 2;
+            if (rank <= next) {
+                return interpolate(means[i], means[i + 1], (rank - center) / (next - center));
+            }
+            center = next;
+        }
+        return means[last];
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " sum=" + sum() + " mean=" + mean() + " variance=" + variance() + " min=" + min()
+                + " max=" + max() + " p50=" + quantile(0.5) + " p90=" + quantile(0.9) + " p99=" + quantile(0.99);
+    }
+
+    private void addToSum(double value) {
+        double total = sum + value;
+        compensation += Math.abs(sum) >= Math.abs(value) ? (sum - total) + value : (value - total) + sum;
+        sum = total;
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * Math.max(0, Math.min(1, fraction));
+    }
+
+    /**
+     * Merges the buffered values into the centroids.
+     */
+    private void flush() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        int incoming = buffered;
+        buffered = 0;
+        mergeCentroids(buffer, null, incoming);
+    }
+
+    /**
+     * Merges a sorted run of points into the centroids, in one pass over both. Adjacent
+     * points are combined as long as the combined centroid spans at most one unit of
+     * the scale function, measured from where it starts.
+     *
+     * @param pointWeights the weight of each point, or null if every point weighs 1.
+     */
+    private void mergeCentroids(double[] pointMeans, double[] pointWeights, int points) {
+        double total = 0;
+        for (int i = 0; i < centroids; i++) {
+            total += weights[i];
+        }
+        for (int i = 0; i < points; i++) {
+            total += pointWeights == null ? 1 : pointWeights[i];
+        }
+
+        int merged = 0;
+        double before = 0;
+        double limit = weightLimit(0, total);
+        int i = 0;
+        int j = 0;
+        while (i < centroids || j < points) {
+            double nextMean;
+            double nextWeight;
+            if (j == points || i < centroids && means[i] <= pointMeans[j]) {
+                nextMean = means[i];
+                nextWeight = weights[i++];
+            } else {
+                nextMean = pointMeans[j];
+                nextWeight = pointWeights == null ? 1 : pointWeights[j];
+                j++;
+            }
+            if (merged > 0 && before + mergedWeights[merged - 1] + nextWeight <= limit) {
+                double weight = mergedWeights[merged - 1] + nextWeight;
+                mergedMeans[merged - 1] += (nextMean - mergedMeans[merged - 1]) * nextWeight / weight;
+                mergedWeights[merged - 1] = weight;
+            } else {
+                if (merged > 0) {
+                    before += mergedWeights[merged - 1];
+                    limit = weightLimit(before, total);
+                }
+                mergedMeans[merged] = nextMean;
+                mergedWeights[merged] = nextWeight;
+                merged++;
+            }
+        }
+        System.arraycopy(mergedMeans, 0, means, 0, merged);
+        System.arraycopy(mergedWeights, 0, weights, 0, merged);
+        centroids = merged;
+    }
+
+    /**
+     * @return the cumulative weight at which a centroid starting at {@code before} must end,
+     *         one unit further along the k1 scale.
+     */
+    private double weightLimit(double before, double total) {
+        double k = compression / (2 * Math.PI) * Math.asin(2 * before / total - 1) + 1;
+        if (k >= compression / 4) {
+            return total;
+        }
+        return total * (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+}
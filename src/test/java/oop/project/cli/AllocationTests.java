@@ -0,0 +1,217 @@
+package oop.project.cli;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Allocation budgets for the parse hot path. Each command is warmed up until
+ * the JIT has compiled it, then run in a loop while the thread's allocation
+ * counter measures the average number of bytes allocated per call. A command
+ * that allocates more than its budget fails with how far over it went.
+ *
+ * <p>Every call runs on one dedicated thread. An exception allocates in
+ * proportion to the depth of the stack it is thrown from, so running under
+ * the test framework's own stack would make the failure budgets depend on it.
+ *
+ * <p>The budgets are byte counts for one heap layout: HotSpot on JDK 17 with
+ * compressed oops and class pointers, 8-byte object alignment, and the C2
+ * compiler with escape analysis, which is the default for heaps under 32 GB.
+ * Under any other layout objects have different sizes, or allocations that C2
+ * would eliminate remain, so the suite is skipped rather than failing.
+ *
+ * <p>The budgets leave about a quarter of headroom over what was measured when
+ * they were set, so they only fail on a real regression, such as a new object
+ * per argument. They are deliberately not kept tight to the current numbers.
+ */
+public class AllocationTests {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int WARMUP_CALLS = 20_000;
+    private static final int SAMPLES = 5;
+    private static final int CALLS = 10_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads ? threads : null;
+
+    private static ExecutorService executor;
+    private static boolean metrics;
+    private static volatile Object sink;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        Assumptions.assumeTrue(THREADS != null && THREADS.isThreadAllocatedMemorySupported(), "Thread allocation counters are not supported.");
+        Assumptions.assumeTrue(isMeasuredLayout(), "The budgets were measured on JDK 17 with compressed oops, 8-byte alignment and C2 escape analysis.");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        // Metrics allocate their counters on first use and are off by default, so measure without them.
+        metrics = ScenarioMetrics.isEnabled();
+        ScenarioMetrics.setEnabled(false);
+        executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> {
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                testValid().forEach(arguments -> repeat(PARSE, (String) arguments.get()[0], WARMUP_CALLS));
+                testInvalid().forEach(arguments -> {
+                    repeat(PARSE_INVALID, (String) arguments.get()[0], WARMUP_CALLS);
+                    repeat(TRY_PARSE, (String) arguments.get()[0], WARMUP_CALLS);
+                });
+            }
+        }).get();
+    }
+
+    /**
+     * @return whether this JVM lays out objects and compiles the hot path the way it
+     *         did when the budgets were measured.
+     */
+    private static boolean isMeasuredLayout() {
+        var diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        return Runtime.version().feature() == 17 && diagnostics != null
+            && "true".equals(option(diagnostics, "UseCompressedOops"))
+            && "true".equals(option(diagnostics, "UseCompressedClassPointers"))
+            && "8".equals(option(diagnostics, "ObjectAlignmentInBytes"))
+            && "true".equals(option(diagnostics, "DoEscapeAnalysis"))
+            && "4".equals(option(diagnostics, "TieredStopAtLevel"));
+    }
+
+    /**
+     * @return the value of a VM option, or null if this JVM does not have it, as a JVM built
+     *         without C2 does not have {@code DoEscapeAnalysis}.
+     */
+    private static String option(HotSpotDiagnosticMXBean diagnostics, String name) {
+        try {
+            return diagnostics.getVMOption(name).getValue();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @AfterAll
+    public static void teardown() {
+        if (executor != null) {
+            executor.shutdown();
+            ScenarioMetrics.setEnabled(metrics);
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testValid(String command, long budget) throws Exception {
+        assertWithinBudget("parse(\"" + command + "\")", measure(PARSE, command), budget);
+    }
+
+    public static Stream<Arguments> testValid() {
+        return Stream.of(
+            Arguments.of("add 1 2", 272),
+            Arguments.of("sub --left 1.0 --right 2.0", 336),
+            Arguments.of("sub --right 2.0", 312),
+            Arguments.of("sqrt 4", 160),
+            Arguments.of("calc add", 224),
+            Arguments.of("date 2024-01-01", 264),
+            Arguments.of("time 12:00:00", 224),
+            Arguments.of("mul 5 4", 336),
+            Arguments.of("div 10 2", 336),
+            Arguments.of("pow 2 3", 304),
+            Arguments.of("fact 5", 272),
+            Arguments.of("log 10", 336),
+            Arguments.of("calc \"x * 2\" x=3", 704)
+        );
+    }
+
+    /**
+     * Invalid commands are measured twice: through {@link Scenarios#parse}, which
+     * includes the cost of the exception, and through {@link Scenarios#tryParse}
+     * and {@link ParseResult#message()}, which is only the cost of the failure.
+     */
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testInvalid(String command, long parseBudget, long tryParseBudget) {
+        Assertions.assertAll(
+            () -> assertWithinBudget("parse(\"" + command + "\")", measure(PARSE_INVALID, command), parseBudget),
+            () -> assertWithinBudget("tryParse(\"" + command + "\")", measure(TRY_PARSE, command), tryParseBudget)
+        );
+    }
+
+    public static Stream<Arguments> testInvalid() {
+        return Stream.of(
+            Arguments.of("add 1", 1000, 112),
+            Arguments.of("add one two", 1184, 288),
+            Arguments.of("add 1 2 3", 1000, 112),
+            Arguments.of("sub --write 2.0", 1000, 112),
+            Arguments.of("sub --right two", 1000, 112),
+            Arguments.of("sqrt -1", 1200, 304),
+            Arguments.of("calc unknown", 1224, 320),
+            Arguments.of("date 20240401", 2336, 1440),
+            Arguments.of("date 2024-02-30", 4184, 3280),
+            Arguments.of("time 12:00", 1064, 160),
+            Arguments.of("time 25:00:00", 4480, 3584),
+            Arguments.of("mul two 3", 1192, 296),
+            Arguments.of("div 5 0", 1000, 112),
+            Arguments.of("pow 3 -2", 1000, 112),
+            Arguments.of("fact -1", 1000, 112),
+            Arguments.of("log 0", 1000, 112),
+            Arguments.of("log abc", 1000, 112),
+            Arguments.of("unknown 1", 944, 48)
+        );
+    }
+
+    private static final Consumer<String> PARSE = command -> sink = Scenarios.parse(command);
+
+    private static final Consumer<String> PARSE_INVALID = command -> {
+        try {
+            sink = Scenarios.parse(command);
+        } catch (IllegalArgumentException e) {
+            sink = e;
+            return;
+        }
+        throw new AssertionError("Expected \"" + command + "\" to be invalid.");
+    };
+
+    private static final Consumer<String> TRY_PARSE = command -> {
+        var result = Scenarios.tryParse(command);
+        sink = result.isSuccess() ? result.value() : result.message();
+    };
+
+    private static void repeat(Consumer<String> call, String command, int calls) {
+        for (int i = 0; i < calls; i++) {
+            call.accept(command);
+        }
+    }
+
+    /**
+     * @return the average bytes allocated per call, taking the lowest of several
+     *         samples so that a one-off allocation elsewhere in the thread, such
+     *         as a class being loaded, does not count against the command.
+     */
+    private static double measure(Consumer<String> call, String command) throws ExecutionException, InterruptedException {
+        return executor.submit(() -> {
+            long thread = Thread.currentThread().getId();
+            repeat(call, command, CALLS);
+            long lowest = Long.MAX_VALUE;
+            for (int sample = 0; sample < SAMPLES; sample++) {
+                long before = THREADS.getThreadAllocatedBytes(thread);
+                repeat(call, command, CALLS);
+                lowest = Math.min(lowest, THREADS.getThreadAllocatedBytes(thread) - before);
+            }
+            return (double) lowest / CALLS;
+        }).get();
+    }
+
+    private static void assertWithinBudget(String call, double bytes, long budget) {
+        if (bytes > budget) {
+            Assertions.fail(String.format("%s allocated %.1f bytes per call, %.1f bytes (%.0f%%) over its budget of %d.",
+                call, bytes, bytes - budget, 100 * (bytes - budget) / budget, budget));
+        }
+    }
+
+}
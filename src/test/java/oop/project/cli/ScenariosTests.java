@@ -1,16 +1,47 @@
 package oop.project.cli;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 public class ScenariosTests {
 
@@ -56,6 +87,23 @@ public class ScenariosTests {
             );
         }
 
+        @ParameterizedTest
+        @MethodSource
+        public void testSubErrorCode(String name, String command, ErrorCode expected) {
+            Assertions.assertEquals(expected, Scenarios.tryParse(command).errorCode());
+        }
+
+        public static Stream<Arguments> testSubErrorCode() {
+            return Stream.of(
+                Arguments.of("Embedded Flag", "sub --right 2.0 --write 1", ErrorCode.TOO_MANY_ARGUMENTS),
+                Arguments.of("Newline Around Flag", "sub --right 2.0\n--write\n1", ErrorCode.TOO_MANY_ARGUMENTS),
+                Arguments.of("Newline Before Flag", "sub --right\n2.0 x --write 1", ErrorCode.INVALID_FORMAT),
+                Arguments.of("Newline After Flag", "sub --right 2.0 --write 1\n2", ErrorCode.INVALID_FORMAT),
+                Arguments.of("Line Separator After Flag", "sub --right 2.0 --write 1\u2028x", ErrorCode.INVALID_FORMAT),
+                Arguments.of("Form Feed Around Flag", "sub --right 2.0\f--write\f1", ErrorCode.TOO_MANY_ARGUMENTS)
+            );
+        }
+
     }
 
     @Nested
@@ -115,10 +163,28 @@ public class ScenariosTests {
                     Arguments.of("Date with invalid year", "date 202x-01-01", null),
                     Arguments.of("Date with invalid month", "date 2024-13-01", null),
                     Arguments.of("Date with invalid day", "date 2024-02-30", null),
+                    Arguments.of("Leap day", "date 2024-02-29", Map.of("date", LocalDate.of(2024, 2, 29))),
+                    Arguments.of("Leap day in non-leap century", "date 1900-02-29", null),
+                    Arguments.of("Expanded year", "date +12345-01-01", Map.of("date", LocalDate.of(12345, 1, 1))),
                     Arguments.of("Date with additional spaces", "date   2024-01-01   ", Map.of("date", LocalDate.of(2024, 1, 1))),
                     Arguments.of("Date with leading/trailing spaces", "   date 2024-01-01   ", Map.of("date", LocalDate.of(2024, 1, 1)))
             );
         }
+
+        @ParameterizedTest
+        @MethodSource
+        public void testDateErrorCode(String name, String command, ErrorCode expected) {
+            Assertions.assertEquals(expected, Scenarios.tryParse(command).errorCode());
+        }
+
+        public static Stream<Arguments> testDateErrorCode() {
+            return Stream.of(
+                    Arguments.of("Invalid day", "date 2023-02-29", ErrorCode.INVALID_VALUE),
+                    Arguments.of("Invalid day after extra spaces", "date  2023-02-29", ErrorCode.INVALID_FORMAT),
+                    Arguments.of("Invalid day after a tab", "date \t2023-02-29", ErrorCode.INVALID_FORMAT),
+                    Arguments.of("Invalid day with trailing spaces", "date 2023-02-29  ", ErrorCode.INVALID_VALUE)
+            );
+        }
     }
 
     @Nested
@@ -182,6 +248,8 @@ public class ScenariosTests {
                     Arguments.of("Time with invalid hour", "time 25:00:00", null),
                     Arguments.of("Time with invalid minute", "time 12:60:00", null),
                     Arguments.of("Time with invalid second", "time 12:00:60", null),
+                    Arguments.of("End of day", "time 24:00:00", Map.of("time", LocalTime.MIDNIGHT)),
+                    Arguments.of("Past end of day", "time 24:00:01", null),
                     Arguments.of("Time with additional spaces", "time   12:00:00   ", Map.of("time", LocalTime.of(12, 0, 0))),
                     Arguments.of("Time with leading/trailing spaces", "   time 12:00:00   ", Map.of("time", LocalTime.of(12, 0, 0)))
             );
@@ -220,12 +288,77 @@ public class ScenariosTests {
             return Stream.of(
                     Arguments.of("Valid", "fact 5", Map.of("number", 5, "factorial", 120L)),
                     Arguments.of("Zero", "fact 0", Map.of("number", 0, "factorial", 1L)),
+                    Arguments.of("Largest Long", "fact 20", Map.of("number", 20, "factorial", 2432902008176640000L)),
+                    Arguments.of("BigInteger", "fact 25", Map.of("number", 25, "factorial", new BigInteger("15511210043330985984000000"))),
+                    Arguments.of("Too Large", "fact 1000001", null),
                     Arguments.of("Negative", "fact -1", null),
                     Arguments.of("Not An Integer", "fact one", null)
             );
         };
     }
 
+    @Nested
+    class FactorialEngine {
+
+        @ParameterizedTest
+        @ValueSource(ints = {21, 127, 128, 1000, 4999, 50_000, 100_000})
+        public void testMatchesNaiveProduct(int n) {
+            var expected = BigInteger.ONE;
+            for (int i = 2; i <= n; i++) {
+                expected = expected.multiply(BigInteger.valueOf(i));
+            }
+            Assertions.assertEquals(expected, Factorials.bigValue(n));
+        }
+
+    }
+
+    @Nested
+    class Evaluation {
+
+        private static final MathContext PRECISION = new MathContext(50);
+
+        @Test
+        public void testDouble() {
+            Assertions.assertEquals(1024.0, Evaluator.DOUBLE.evaluate(Scenarios.parseTyped("pow 2 10")));
+            Assertions.assertEquals(2.0, Evaluator.DOUBLE.evaluate(Scenarios.parseTyped("sqrt 4")));
+            Assertions.assertEquals(Math.log(10), Evaluator.DOUBLE.evaluate(Scenarios.parseTyped("log 10")));
+            // Repeated squaring would compound rounding errors to millions of ulps here.
+            Assertions.assertEquals(Math.pow(1.0000001, 1e9), Evaluator.DOUBLE.evaluate(Scenarios.parseTyped("pow 1.0000001 1000000000")));
+        }
+
+        @Test
+        public void testPower() {
+            var evaluator = Evaluator.withPrecision(PRECISION);
+            Assertions.assertEquals(new BigDecimal("1.5").pow(1000, PRECISION), evaluator.power(new BigDecimal("1.5"), 1000));
+            Assertions.assertEquals(new BigDecimal("1024"), evaluator.evaluate(Scenarios.parseTyped("pow 2 10")));
+        }
+
+        @Test
+        public void testSqrt() {
+            var evaluator = Evaluator.withPrecision(PRECISION);
+            Assertions.assertEquals(BigDecimal.valueOf(2).sqrt(PRECISION), evaluator.evaluate(Scenarios.parseTyped("sqrt 2")));
+            Assertions.assertEquals(0, BigDecimal.valueOf(3).compareTo(evaluator.sqrt(BigDecimal.valueOf(9))));
+        }
+
+        @Test
+        public void testLog() {
+            var evaluator = Evaluator.withPrecision(PRECISION);
+            Assertions.assertEquals(new BigDecimal("2.3025850929940456840179914546843642076011014886288"), evaluator.evaluate(Scenarios.parseTyped("log 10")));
+            Assertions.assertEquals(new BigDecimal("0.69314718055994530941723212145817656807550013436026"), evaluator.log(2));
+            Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(evaluator.log(1)));
+        }
+
+        @Test
+        public void testLogNearOne() {
+            var evaluator = Evaluator.withPrecision(MathContext.DECIMAL128);
+            Assertions.assertEquals(new BigDecimal("-1.110223024625156602053389888482372E-16"), evaluator.log(0.9999999999999999));
+            Assertions.assertEquals(new BigDecimal("2.220446049250312834328230454615488E-16"), evaluator.log(1.0000000000000002));
+            Assertions.assertEquals(new BigDecimal("-0.6931471805599450873726271964268931"), evaluator.log(0.5000000000000001));
+            Assertions.assertEquals(new BigDecimal("0.4054651081081642339482764987767995"), evaluator.log(1.4999999999999998));
+        }
+
+    }
+
     @Nested
     class Logarithm {
 
@@ -246,6 +379,889 @@ public class ScenariosTests {
 
     }
 
+    @Nested
+    class Typed {
+
+        @ParameterizedTest
+        @MethodSource
+        public void testTyped(String name, String command, ParsedCommand expected) {
+            var result = Scenarios.parseTyped(command);
+            Assertions.assertEquals(expected, result);
+            Assertions.assertEquals(Scenarios.parse(command), result.toMap());
+        }
+
+        public static Stream<Arguments> testTyped() {
+            return Stream.of(
+                    Arguments.of("Add", "add 1 2", new ParsedCommand.Add(1, 2)),
+                    Arguments.of("Sub", "sub --left 1.0 --right 2.0", new ParsedCommand.Sub(true, 1.0, 2.0)),
+                    Arguments.of("Sub Right Only", "sub --right 2.0", new ParsedCommand.Sub(false, 0, 2.0)),
+                    Arguments.of("Div", "div 10 2", new ParsedCommand.Div(10.0, 2.0)),
+                    Arguments.of("Date", "date 2024-01-01", new ParsedCommand.Date(LocalDate.of(2024, 1, 1))),
+                    Arguments.of("Fact", "fact 5", new ParsedCommand.Fact(5, 120L))
+            );
+        }
+
+    }
+
+    @Nested
+    class TryParse {
+
+        @ParameterizedTest
+        @MethodSource
+        public void testTryParse(String name, String command, ErrorCode expected) {
+            var result = Scenarios.tryParse(command);
+            Assertions.assertEquals(expected, result.errorCode());
+            if (expected != null) {
+                var exception = Assertions.assertThrows(IllegalArgumentException.class, result::value);
+                Assertions.assertEquals(result.message(), exception.getMessage());
+            }
+        }
+
+        public static Stream<Arguments> testTryParse() {
+            return Stream.of(
+                    Arguments.of("Valid", "add 1 2", null),
+                    Arguments.of("Unknown Command", "unknown 1", ErrorCode.UNKNOWN_COMMAND),
+                    Arguments.of("Missing Argument", "add 1", ErrorCode.MISSING_ARGUMENT),
+                    Arguments.of("Too Many Arguments", "div 5 3 2", ErrorCode.TOO_MANY_ARGUMENTS),
+                    Arguments.of("Invalid Integer", "add one two", ErrorCode.INVALID_INTEGER),
+                    Arguments.of("Invalid Number", "mul two 3", ErrorCode.INVALID_NUMBER),
+                    Arguments.of("Out Of Range", "log 0", ErrorCode.OUT_OF_RANGE),
+                    Arguments.of("Division By Zero", "div 5 0", ErrorCode.DIVISION_BY_ZERO),
+                    Arguments.of("Invalid Value", "date 2024-02-30", ErrorCode.INVALID_VALUE),
+                    Arguments.of("Invalid Subcommand", "calc unknown", ErrorCode.INVALID_SUBCOMMAND)
+            );
+        }
+
+    }
+
+    @Nested
+    class Sequences {
+
+        @ParameterizedTest
+        @ValueSource(strings = {"add 1 2", " sub --left 1.0 --right 2.0 ", "sub --write 2.0", "calc mul", "calc \"x * 2\" x=3",
+                "date 2024-02-29", "date 2024-02-30", "time 12:00:00", "time 25:00:00", "div 5 0", "fact 25", "unknown 1"})
+        public void testSameResultAsString(String command) {
+            var expected = Scenarios.tryParse(command);
+            var bytes = ("##" + command + "##").getBytes(StandardCharsets.US_ASCII);
+            var direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+            var results = List.of(
+                    Scenarios.tryParse(new StringBuilder(command), Scenarios.registry()),
+                    Scenarios.tryParse(ByteBuffer.wrap(bytes), 2, command.length()),
+                    Scenarios.tryParse(direct, 2, command.length()));
+            for (var result : results) {
+                Assertions.assertEquals(expected.errorCode(), result.errorCode());
+                Assertions.assertEquals(expected.isSuccess() ? expected.value() : expected.message(),
+                        result.isSuccess() ? result.value() : result.message());
+            }
+            Assertions.assertEquals(0, direct.position());
+        }
+
+    }
+
+    @Nested
+    class Numbers {
+
+        @ParameterizedTest
+        @ValueSource(strings = {"", "+", "-", " 1", "1 ", "+0", "-0", "007", "2147483647", "2147483648", "-2147483648",
+                "-2147483649", "99999999999", "1_000", "1.0", "\u0661\u0662", "\uff13"})
+        public void testIntSameAsJdk(String text) {
+            assertSameInt(text);
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"", " ", "+", "-", ".", "1.", ".5", "-.5", "1e", "1e+", "1e-5", "1E5", "1e5d", "1e5F", "1e5dd",
+                " \t2.5\n", "NaN", "-NaN", "+Infinity", "-Infinity", "Infinity ", "NaNd", "infinity", "0x1p3", "-0x1.8p1d",
+                "0x.8p1", "0x.p1", "0x1", "0x1p", "0X1P-2f", "00x1p1", "4.9e-324", "2.4703282292062327e-324",
+                "2.2250738585072011e-308", "2.2250738585072014e-308", "1.7976931348623157e308", "1.7976931348623158e308",
+                "1.7976931348623159e308", "1e-400", "1e400", "1e99999999999", "-1e-99999999999", "0e999999", "9007199254740993",
+                "123456789012345678901234567890", "0.000000000000000000000000001", "9999999999999999999", "1,5", "\u0661"})
+        public void testDoubleSameAsJdk(String text) {
+            assertSameDouble(text);
+        }
+
+        @Test
+        public void testRandomDoublesSameAsJdk() {
+            var random = new Random(21);
+            for (int i = 0; i < 200_000; i++) {
+                assertSameDouble(Double.toString(Double.longBitsToDouble(random.nextLong())));
+                assertSameDouble(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20) + "");
+                var digits = new StringBuilder();
+                for (int j = random.nextInt(22) + 1; j > 0; j--) {
+                    digits.append((char) ('0' + random.nextInt(10)));
+                }
+                if (random.nextBoolean()) {
+                    digits.insert(random.nextInt(digits.length() + 1), '.');
+                }
+                if (random.nextBoolean()) {
+                    digits.append('e').append(random.nextInt(700) - 350);
+                }
+                assertSameDouble(random.nextBoolean() ? "-" + digits : digits.toString());
+            }
+        }
+
+        @Test
+        public void testRandomTextSameAsJdk() {
+            var random = new Random(21);
+            var alphabet = "0123456789.eE+-dDfFxXpPaN \t";
+            for (int i = 0; i < 200_000; i++) {
+                var text = new StringBuilder();
+                for (int j = random.nextInt(8); j > 0; j--) {
+                    text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                assertSameDouble(text.toString());
+                assertSameInt(text.toString());
+                assertSameInt(Integer.toString(random.nextInt()));
+            }
+        }
+
+        @Test
+        public void testRange() {
+            Assertions.assertEquals(-42, NumberParser.parseInt("add -42 7", 4, 7));
+            Assertions.assertEquals(Double.doubleToRawLongBits(0.5), NumberParser.parseDoubleBits("[0.5]", 1, 4));
+        }
+
+        private static void assertSameInt(String text) {
+            long expected;
+            try {
+                expected = Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                expected = NumberParser.INVALID_INT;
+            }
+            Assertions.assertEquals(expected, NumberParser.parseInt(text, 0, text.length()), text);
+        }
+
+        private static void assertSameDouble(String text) {
+            long expected;
+            try {
+                expected = Double.doubleToRawLongBits(Double.parseDouble(text));
+            } catch (NumberFormatException e) {
+                expected = NumberParser.INVALID_DOUBLE;
+            }
+            Assertions.assertEquals(expected, NumberParser.parseDoubleBits(text, 0, text.length()), text);
+        }
+
+    }
+
+    @Nested
+    class Registry {
+
+        @Test
+        public void testCustomRegistry() {
+            var registry = CommandRegistry.builder()
+                    .register(CommandHandler.of("neg", true, arguments -> {
+                        var value = Integer.parseInt(arguments.next());
+                        return ParseResult.success(new ParsedCommand.Custom(Map.of("value", -value)));
+                    }))
+                    .registerBuiltins()
+                    .build();
+            Assertions.assertEquals(Map.of("value", -3), Scenarios.tryParse("neg 3", registry).value());
+            Assertions.assertEquals(Map.of("subcommand", "neg"), Scenarios.tryParse("calc neg", registry).value());
+            Assertions.assertEquals(ErrorCode.INVALID_SUBCOMMAND, Scenarios.tryParse("calc neg", Scenarios.registry()).errorCode());
+            Assertions.assertEquals(Map.of("left", 1, "right", 2), Scenarios.tryParse("add 1 2", registry).value());
+        }
+
+        @Test
+        public void testGeneratedHandlers() {
+            var registry = Scenarios.registry();
+            for (var handler : List.of(CommandParsers.ADD, CommandParsers.SQRT, CommandParsers.MUL, CommandParsers.DIV, CommandParsers.POW)) {
+                Assertions.assertSame(handler, registry.lookup(handler.name()));
+            }
+            Assertions.assertTrue(CommandParsers.DIV.calcSubcommand());
+            Assertions.assertFalse(CommandParsers.POW.calcSubcommand());
+            Assertions.assertEquals("Valid subcommands are: add, sub, sqrt, mul, or div.", registry.calcSubcommands());
+        }
+
+        @Test
+        public void testDuplicate() {
+            var builder = CommandRegistry.builder().registerBuiltins();
+            Assertions.assertThrows(IllegalArgumentException.class, () -> builder.register(CommandParsers.ADD));
+        }
+
+        @Test
+        public void testCollidingNames() {
+            // Every name is six of "Aa" and "BB", so all 64 share one String.hashCode.
+            var names = new ArrayList<String>();
+            for (int bits = 0; bits < 64; bits++) {
+                var name = new StringBuilder();
+                for (int i = 0; i < 6; i++) {
+                    name.append((bits >> i & 1) == 0 ? "Aa" : "BB");
+                }
+                names.add(name.toString());
+            }
+            Assertions.assertEquals(1, names.stream().map(String::hashCode).distinct().count());
+            var builder = CommandRegistry.builder();
+            for (var name : names) {
+                builder.register(CommandHandler.of(name, false, arguments -> ParseResult.success(new ParsedCommand.Custom(Map.of("name", name)))));
+            }
+            var registry = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), builder::build);
+            for (var name : names) {
+                Assertions.assertEquals(Map.of("name", name), Scenarios.tryParse(name, registry).value());
+            }
+            Assertions.assertNull(registry.lookup("AaAa"));
+            Assertions.assertNull(registry.lookup("BBBBBBBBBBBBBB"));
+        }
+
+        @Test
+        public void testServiceLoader() {
+            Assertions.assertTrue(Scenarios.registry().names().contains("echo"));
+            Assertions.assertEquals(Map.of("text", "hello world"), Scenarios.parse("echo hello world"));
+        }
+
+    }
+
+    /**
+     * Registered through META-INF/services to check that the standard registry loads service handlers.
+     */
+    public static class EchoHandler implements CommandHandler {
+
+        @Override
+        public String name() {
+            return "echo";
+        }
+
+        @Override
+        public ParseResult parse(ArgumentTokenizer arguments) {
+            return ParseResult.success(new ParsedCommand.Custom(Map.of("text", arguments.rest())));
+        }
+
+    }
+
+    @Nested
+    class Cache {
+
+        @Test
+        public void testHitsMissesAndEvictions() {
+            var cache = new ParseCache(2);
+            Assertions.assertEquals(Map.of("number", 5, "factorial", 120L), cache.parse("fact 5"));
+            Assertions.assertEquals(Map.of("number", 5, "factorial", 120L), cache.parse("fact 5"));
+            Assertions.assertEquals(ErrorCode.DIVISION_BY_ZERO, cache.tryParse("div 5 0").errorCode());
+            Assertions.assertSame(cache.tryParse("div 5 0"), cache.tryParse("div 5 0"));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> cache.parse("div 5 0"));
+            cache.parse("date 2024-01-01");
+            var stats = cache.stats();
+            Assertions.assertEquals(3, stats.missCount());
+            Assertions.assertEquals(4, stats.hitCount());
+            Assertions.assertEquals(1, stats.evictionCount());
+        }
+
+        @Test
+        public void testSnapshotRoundTrip(@TempDir Path directory) throws IOException {
+            var file = directory.resolve("cache.snapshot");
+            var commands = List.of("add 1 2", "sub --right 2.0", "sqrt 4", "calc add", "date 2024-02-29", "time 12:00:00", "mul 5 4",
+                    "div 5 0", "pow 2 3", "fact 5", "fact 25", "log 10", "calc \"x * 2\" x=3", "unknown 1", "add one two");
+            var cache = new ParseCache(100);
+            cache.loadSnapshot(file);
+            commands.forEach(cache::tryParse);
+            Assertions.assertEquals(0, cache.snapshotHits());
+            Assertions.assertEquals(commands.size(), cache.saveSnapshot(file));
+
+            var restarted = new ParseCache(100);
+            restarted.loadSnapshot(file);
+            for (var command : commands) {
+                var expected = Scenarios.tryParse(command);
+                var result = restarted.tryParse(command);
+                Assertions.assertEquals(expected.errorCode(), result.errorCode(), command);
+                Assertions.assertEquals(expected.isSuccess() ? expected.value() : expected.message(),
+                        result.isSuccess() ? result.value() : result.message(), command);
+            }
+            Assertions.assertEquals(commands.size(), restarted.snapshotHits());
+            Assertions.assertEquals(Map.of("left", 3, "right", 4), restarted.parse("add 3 4"));
+            Assertions.assertEquals(commands.size(), restarted.snapshotHits());
+        }
+
+        @Test
+        public void testSnapshotKeepsUnusedEntriesUpToLimit(@TempDir Path directory) throws IOException {
+            var file = directory.resolve("cache.snapshot");
+            var cache = new ParseCache(3);
+            cache.tryParse("add 1 2");
+            cache.tryParse("sqrt 4");
+            cache.saveSnapshot(file);
+
+            var restarted = new ParseCache(3);
+            restarted.loadSnapshot(file);
+            restarted.tryParse("mul 2 3");
+            restarted.tryParse("div 6 3");
+            Assertions.assertEquals(3, restarted.saveSnapshot(file));
+        }
+
+        @Test
+        public void testCorruptSnapshotIsDiscarded(@TempDir Path directory) throws IOException {
+            var file = directory.resolve("cache.snapshot");
+            var cache = new ParseCache(10);
+            cache.tryParse("add 1 2");
+            cache.saveSnapshot(file);
+            var bytes = Files.readAllBytes(file);
+
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(file, bytes);
+            assertColdStart(file);
+
+            bytes[bytes.length - 1] ^= 1;
+            bytes[7]++;
+            Files.write(file, bytes);
+            assertColdStart(file);
+
+            Files.write(file, new byte[] {1, 2, 3});
+            assertColdStart(file);
+
+            assertColdStart(directory.resolve("missing.snapshot"), false);
+        }
+
+        @Test
+        public void testUndecodableSnapshotIsDiscarded(@TempDir Path directory) throws IOException {
+            // Each file below has a valid checksum but contents the snapshot cannot hold.
+            var file = directory.resolve("cache.snapshot");
+            var cache = new ParseCache(10);
+            cache.tryParse("add 1 2");
+            cache.saveSnapshot(file);
+            var success = Files.readAllBytes(file);
+            // The result follows the 24-byte header, the entry length, the key hash and the 7-byte key.
+            int result = 24 + 12 + "add 1 2".length();
+
+            var unknownKind = success.clone();
+            unknownKind[result] = 0x7F;
+            writeWithChecksum(file, unknownKind);
+            assertColdStart(file);
+
+            var unknownErrorCode = success.clone();
+            unknownErrorCode[result] = (byte) 0xFF;
+            unknownErrorCode[result + 1] = 0x7F;
+            writeWithChecksum(file, unknownErrorCode);
+            assertColdStart(file);
+
+            var hugeCount = success.clone();
+            ByteBuffer.wrap(hugeCount).putInt(12, Integer.MAX_VALUE);
+            writeWithChecksum(file, hugeCount);
+            assertColdStart(file);
+        }
+
+        private static void writeWithChecksum(Path file, byte[] bytes) throws IOException {
+            var checksum = new CRC32C();
+            checksum.update(bytes, 24, bytes.length - 24);
+            ByteBuffer.wrap(bytes).putInt(20, (int) checksum.getValue());
+            Files.write(file, bytes);
+        }
+
+        private static void assertColdStart(Path file) {
+            assertColdStart(file, true);
+        }
+
+        private static void assertColdStart(Path file, boolean discarded) {
+            var cache = new ParseCache(10);
+            var errors = new ArrayList<IOException>();
+            cache.loadSnapshot(file, errors::add);
+            Assertions.assertEquals(Map.of("left", 1, "right", 2), cache.parse("add 1 2"));
+            Assertions.assertEquals(Map.of("left", 2, "right", 1), cache.parse("add 2 1"));
+            Assertions.assertEquals(0, cache.snapshotHits());
+            Assertions.assertEquals(discarded ? 1 : 0, errors.size(), errors::toString);
+        }
+
+    }
+
+    @Nested
+    class Metrics {
+
+        @Test
+        public void testCountersByCommandAndReason() {
+            ScenarioMetrics.reset();
+            ScenarioMetrics.setEnabled(true);
+            try {
+                Scenarios.tryParse("add 1 2");
+                Scenarios.tryParse("add 1");
+                Scenarios.tryParse("div 1 0");
+                Scenarios.tryParse("nope");
+            } finally {
+                ScenarioMetrics.setEnabled(false);
+            }
+            Scenarios.tryParse("add 3 4");
+            var stats = new HashMap<String, CommandStatistics>();
+            ScenarioMetrics.snapshot().forEach(s -> stats.put(s.getCommand(), s));
+            Assertions.assertEquals(Set.of("add", "div", "unknown"), stats.keySet());
+            Assertions.assertEquals(2, stats.get("add").getCalls());
+            Assertions.assertEquals(1, stats.get("add").getSuccesses());
+            Assertions.assertEquals(Map.of("MISSING_ARGUMENT", 1L), stats.get("add").getFailures());
+            Assertions.assertEquals(Map.of("DIVISION_BY_ZERO", 1L), stats.get("div").getFailures());
+            Assertions.assertEquals(Map.of("UNKNOWN_COMMAND", 1L), stats.get("unknown").getFailures());
+        }
+
+        @ParameterizedTest
+        @ValueSource(longs = {0, 7, 8, 100, 1_000, 123_456, 10_000_000_000L})
+        public void testHistogramBuckets(long value) {
+            long lower = LatencyHistogram.lowerBound(LatencyHistogram.bucket(value));
+            Assertions.assertTrue(lower <= value && value < lower + Math.max(1, lower / 4) + 1, () -> value + " -> " + lower);
+        }
+
+    }
+
+    @Nested
+    class Expressions {
+
+        @ParameterizedTest
+        @MethodSource
+        public void testCalcExpression(String command, Object expected) {
+            var result = Scenarios.tryParse(command);
+            if (expected instanceof ErrorCode code) {
+                Assertions.assertEquals(code, result.errorCode(), result::message);
+            } else {
+                Assertions.assertEquals(expected, result.value());
+            }
+        }
+
+        public static Stream<Arguments> testCalcExpression() {
+            return Stream.of(
+                    Arguments.of("calc \"sqrt(x) * pow(y, 3) / 2\" x=4 y=2", Map.of("expression", "sqrt(x) * pow(y, 3) / 2", "value", 8.0)),
+                    Arguments.of("calc \"1 + 2 * 3 - -4\"", Map.of("expression", "1 + 2 * 3 - -4", "value", 11.0)),
+                    Arguments.of("calc \"-2^2 + 2^3^2\"", Map.of("expression", "-2^2 + 2^3^2", "value", 508.0)),
+                    Arguments.of("calc \"max(a, b) % 3\" b=7 a=1.5", Map.of("expression", "max(a, b) % 3", "value", 1.0)),
+                    Arguments.of("calc \"x + 1\"", ErrorCode.MISSING_ARGUMENT),
+                    Arguments.of("calc \"x + 1\" y=2", ErrorCode.INVALID_VALUE),
+                    Arguments.of("calc \"x + 1\" x=two", ErrorCode.INVALID_NUMBER),
+                    Arguments.of("calc \"x + 1\" x", ErrorCode.INVALID_FORMAT),
+                    Arguments.of("calc \"x + \"", ErrorCode.INVALID_FORMAT),
+                    Arguments.of("calc \"foo(1)\"", ErrorCode.INVALID_FORMAT),
+                    Arguments.of("calc \"pow(1)\"", ErrorCode.INVALID_FORMAT),
+                    Arguments.of("calc \"1 + 2", ErrorCode.INVALID_FORMAT)
+            );
+        }
+
+        @Test
+        public void testCompileOnce() {
+            var expression = Expression.compile("pow(x, 2) + 3 * y - sqrt(16)");
+            Assertions.assertSame(expression, Expression.compile("pow(x, 2) + 3 * y - sqrt(16)"));
+            Assertions.assertEquals(List.of("x", "y"), expression.variables());
+            Assertions.assertEquals(15.0, expression.evaluate(3, 10.0 / 3));
+            Assertions.assertEquals(-4.0, expression.evaluate(Map.of("x", 0, "y", 0)));
+            Assertions.assertTrue(Expression.compile("2 * (3 + sqrt(16)) / exp(0)").isConstant());
+            Assertions.assertThrows(IllegalArgumentException.class, () -> expression.evaluate(1));
+        }
+
+        @Test
+        public void testDeepParentheses() {
+            var result = Scenarios.tryParse("calc \"" + "(".repeat(50_000) + "1" + ")".repeat(50_000) + "\"");
+            Assertions.assertEquals(ErrorCode.INVALID_FORMAT, result.errorCode(), result::message);
+            var nested = "(".repeat(100) + "x" + ")".repeat(100);
+            Assertions.assertEquals(2.0, Scenarios.tryParse("calc \"" + nested + "\" x=2").value().get("value"));
+        }
+
+        @Test
+        public void testLongUnaryChain() {
+            var result = Scenarios.tryParse("calc \"" + "-".repeat(50_000) + "1\"");
+            Assertions.assertEquals(ErrorCode.INVALID_FORMAT, result.errorCode(), result::message);
+            Assertions.assertEquals(ErrorCode.INVALID_FORMAT, Scenarios.tryParse("calc \"" + "2^-".repeat(50_000) + "2\"").errorCode());
+            Assertions.assertEquals(1.0, Scenarios.tryParse("calc \"" + "-".repeat(200) + "1\"").value().get("value"));
+        }
+
+    }
+
+    @Nested
+    class FlightRecorder {
+
+        @Test
+        public void testParseEvents(@TempDir Path directory) throws Exception {
+            Scenarios.tryParse("add 1 2");
+            try (var recording = new Recording()) {
+                recording.enable(ParseEvent.NAME);
+                recording.start();
+                Scenarios.tryParse("add 1 2");
+                Scenarios.tryParse("div 5 0");
+                Scenarios.tryParse("nope 1");
+                recording.stop();
+                var file = directory.resolve("parse.jfr");
+                recording.dump(file);
+                var events = RecordingFile.readAllEvents(file).stream()
+                        .filter(event -> event.getEventType().getName().equals(ParseEvent.NAME))
+                        .toList();
+                Assertions.assertEquals(3, events.size());
+                Assertions.assertEquals(List.of("add", "div", "unknown"), events.stream().map(event -> event.getString("command")).toList());
+                Assertions.assertEquals(List.of("SUCCESS", "DIVISION_BY_ZERO", "UNKNOWN_COMMAND"), events.stream().map(event -> event.getString("outcome")).toList());
+                Assertions.assertEquals(7, events.get(0).getInt("inputLength"));
+                Assertions.assertTrue(events.get(0).getLong("validateNanos") >= 0);
+            }
+        }
+
+    }
+
+    @Nested
+    class Bulk {
+
+        @ParameterizedTest
+        @MethodSource
+        public void testRows(String operation, String input, String expected) throws IOException {
+            var output = new StringWriter();
+            var summary = BulkArithmetic.run(BulkArithmetic.Operation.of(operation), new BufferedReader(new StringReader(input)), output);
+            Assertions.assertEquals(expected, output.toString());
+            Assertions.assertEquals(expected.lines().count(), summary.rows());
+            Assertions.assertEquals(expected.lines().filter(line -> line.startsWith("ERROR")).count(), summary.errors());
+        }
+
+        public static Stream<Arguments> testRows() {
+            return Stream.of(
+                    Arguments.of("add", "1 2\n2147483647 1\n1.5 2\n", "3\n2147483648\nERROR INVALID_INTEGER '1.5' is not a valid integer.\n"),
+                    Arguments.of("sub", "5 1.5\n-1 2\n", "3.5\nERROR INVALID_FORMAT '-1' is not a valid decimal.\n"),
+                    Arguments.of("mul", "2 3\n\n1 2 3\n", "6.0\nERROR MISSING_ARGUMENT Each row requires exactly two numbers.\nERROR TOO_MANY_ARGUMENTS Each row requires exactly two numbers.\n"),
+                    Arguments.of("div", "1 0\n1 -0.0\nx 1\n9 3\n", "ERROR DIVISION_BY_ZERO Divisor cannot be zero.\nERROR DIVISION_BY_ZERO Divisor cannot be zero.\nERROR INVALID_NUMBER 'x' is not a valid number.\n3.0\n")
+            );
+        }
+
+        @Test
+        public void testVectorKernelLoaded() {
+            // The tests run with the incubator module, so the separately compiled kernels must be found.
+            Assertions.assertTrue(BulkArithmetic.VECTORIZED);
+        }
+
+        @ParameterizedTest
+        @ValueSource(ints = {0, 1, 7, 8, 1000, BulkArithmetic.BLOCK_SIZE + 3})
+        public void testKernelsAgree(int length) {
+            var random = new Random(length);
+            var left = random.doubles(length, -1e6, 1e6).toArray();
+            var right = random.doubles(length, -1e6, 1e6).toArray();
+            for (var operation : BulkArithmetic.Operation.values()) {
+                var expected = new double[length];
+                var actual = new double[length];
+                BulkArithmetic.applyScalar(operation, left, right, expected, length);
+                BulkArithmetic.apply(operation, left, right, actual, length);
+                Assertions.assertArrayEquals(expected, actual, operation.name());
+            }
+        }
+
+    }
+
+    @Nested
+    class Statistics {
+
+        @Test
+        public void testExactMoments() {
+            var statistics = new StreamingStatistics();
+            for (double value : new double[] {1e9 + 4, 1e9 + 7, 1e9 + 13, 1e9 + 16, Double.NaN}) {
+                statistics.add(value);
+            }
+            Assertions.assertEquals(4, statistics.count());
+            Assertions.assertEquals(4e9 + 40, statistics.sum());
+            Assertions.assertEquals(1e9 + 10, statistics.mean());
+            Assertions.assertEquals(30, statistics.variance(), 1e-6);
+            Assertions.assertEquals(1e9 + 4, statistics.min());
+            Assertions.assertEquals(1e9 + 16, statistics.max());
+        }
+
+        @Test
+        public void testEmpty() {
+            var statistics = new StreamingStatistics();
+            Assertions.assertEquals(0, statistics.sum());
+            Assertions.assertTrue(Double.isNaN(statistics.mean()));
+            Assertions.assertTrue(Double.isNaN(statistics.variance()));
+            Assertions.assertTrue(Double.isNaN(statistics.quantile(0.5)));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> statistics.quantile(1.5));
+        }
+
+        @Test
+        public void testCompensatedSum() {
+            var statistics = new StreamingStatistics();
+            statistics.add(1e16);
+            for (int i = 0; i < 1000; i++) {
+                statistics.add(1);
+            }
+            statistics.add(-1e16);
+            Assertions.assertEquals(1000, statistics.sum());
+        }
+
+        @Test
+        public void testQuantiles() {
+            var random = new Random(24);
+            var values = random.doubles(200_000).map(value -> Math.exp(4 * value)).toArray();
+            var statistics = new StreamingStatistics();
+            for (double value : values) {
+                statistics.add(value);
+            }
+            Arrays.sort(values);
+            for (double q : new double[] {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999}) {
+                int rank = Arrays.binarySearch(values, statistics.quantile(q));
+                double error = Math.abs((rank < 0 ? -rank - 1 : rank) / (double) values.length - q);
+                Assertions.assertTrue(error < Math.min(0.005, Math.max(0.0005, 0.1 * Math.min(q, 1 - q))), "q=" + q + " rank error " + error);
+            }
+            Assertions.assertEquals(values[0], statistics.quantile(0));
+            Assertions.assertEquals(values[values.length - 1], statistics.quantile(1));
+        }
+
+        @Test
+        public void testMergeMatchesSingleStream() {
+            var random = new Random(24);
+            var whole = new StreamingStatistics();
+            var parts = List.of(new StreamingStatistics(), new StreamingStatistics(), new StreamingStatistics());
+            for (int i = 0; i < 100_000; i++) {
+                double value = random.nextGaussian() * 3 + 1e6;
+                whole.add(value);
+                parts.get(i % 7 == 0 ? 0 : i % 2 + 1).add(value);
+            }
+            var merged = new StreamingStatistics();
+            parts.forEach(merged::merge);
+            Assertions.assertEquals(whole.count(), merged.count());
+            Assertions.assertEquals(whole.sum(), merged.sum(), 1e-6);
+            Assertions.assertEquals(whole.mean(), merged.mean(), 1e-6);
+            Assertions.assertEquals(whole.variance(), merged.variance(), 1e-9 * whole.variance());
+            Assertions.assertEquals(whole.min(), merged.min());
+            Assertions.assertEquals(whole.max(), merged.max());
+            for (double q : new double[] {0.01, 0.5, 0.99}) {
+                Assertions.assertEquals(whole.quantile(q), merged.quantile(q), 0.01 * whole.standardDeviation());
+            }
+        }
+
+        @Test
+        public void testMergeInfinity() {
+            var finite = new StreamingStatistics();
+            finite.add(1);
+            var infinite = new StreamingStatistics();
+            infinite.add(Double.POSITIVE_INFINITY);
+            infinite.add(0.1);
+            Assertions.assertEquals(Double.POSITIVE_INFINITY, finite.merge(infinite).sum());
+        }
+
+        @Test
+        public void testParallelFile(@TempDir Path directory) throws IOException, InterruptedException {
+            var file = directory.resolve("numbers.txt");
+            var text = new StringBuilder();
+            var random = new Random(24);
+            for (int i = 0; i < 20_000; i++) {
+                text.append(random.nextInt(1000) - 500).append(i % 10 == 0 ? " oops NaN\r\n" : i % 3 == 0 ? " " : "\n");
+            }
+            Files.writeString(file, text);
+
+            var sequential = StatisticsProcessor.process(new BufferedReader(new StringReader(text.toString())));
+            var parallel = StatisticsProcessor.process(file, 4, 4096);
+            Assertions.assertEquals(20_000, sequential.statistics().count());
+            Assertions.assertEquals(4_000, sequential.rejected());
+            Assertions.assertEquals(sequential.rejected(), parallel.rejected());
+            Assertions.assertEquals(sequential.statistics().count(), parallel.statistics().count());
+            Assertions.assertEquals(sequential.statistics().sum(), parallel.statistics().sum());
+            Assertions.assertEquals(sequential.statistics().variance(), parallel.statistics().variance(), 1e-6);
+            Assertions.assertEquals(sequential.statistics().min(), parallel.statistics().min());
+            Assertions.assertEquals(sequential.statistics().max(), parallel.statistics().max());
+        }
+
+        @Test
+        public void testSingleLine(@TempDir Path directory) throws IOException, InterruptedException {
+            // No line breaks at all, and tokens that straddle every block, chunk and range boundary.
+            var file = directory.resolve("numbers.txt");
+            var text = new StringBuilder();
+            var random = new Random(25);
+            long sum = 0;
+            for (int i = 0; i < 50_000; i++) {
+                int value = random.nextInt(2_000_000) - 1_000_000;
+                sum += value;
+                text.append(value).append(i % 7 == 0 ? "\t" : " ");
+            }
+            text.append("x".repeat(StatisticsProcessor.MAX_TOKEN + 1)).append(' ').append("0".repeat(StatisticsProcessor.MAX_TOKEN - 1)).append('7');
+            Files.writeString(file, text);
+
+            var sequential = StatisticsProcessor.process(new StringReader(text.toString()));
+            Assertions.assertEquals(50_001, sequential.statistics().count());
+            Assertions.assertEquals(1, sequential.rejected());
+            Assertions.assertEquals(sum + 7, sequential.statistics().sum());
+            for (int chunkSize : List.of(7, 4096, 1 << 20)) {
+                var parallel = StatisticsProcessor.process(file, 3, chunkSize);
+                Assertions.assertEquals(sequential.statistics().count(), parallel.statistics().count());
+                Assertions.assertEquals(sequential.rejected(), parallel.rejected());
+                Assertions.assertEquals(sequential.statistics().sum(), parallel.statistics().sum());
+                Assertions.assertEquals(sequential.statistics().min(), parallel.statistics().min());
+                Assertions.assertEquals(sequential.statistics().max(), parallel.statistics().max());
+            }
+        }
+
+    }
+
+    @Nested
+    class Serialization {
+
+        @ParameterizedTest
+        @MethodSource
+        public void testJson(String command, String expected) {
+            var buffer = new OutputBuffer(4);
+            OutputFormat.JSON.write(Scenarios.tryParse(command), buffer);
+            Assertions.assertEquals(expected + "\n", new String(buffer.toByteArray(), StandardCharsets.US_ASCII));
+        }
+
+        public static Stream<Arguments> testJson() {
+            return Stream.of(
+                    Arguments.of("sqrt 4", "{\"number\":4}"),
+                    Arguments.of("date 0024-02-29", "{\"date\":\"0024-02-29\"}"),
+                    Arguments.of("time 12:00:00", "{\"time\":\"12:00:00\"}"),
+                    Arguments.of("calc sub", "{\"subcommand\":\"sub\"}"),
+                    Arguments.of("div 5 0", "{\"error\":\"DIVISION_BY_ZERO\",\"message\":\"Divisor cannot be zero.\"}"),
+                    Arguments.of("add \"\u00e9 1", "{\"error\":\"INVALID_INTEGER\",\"message\":\"The first argument ('\\\"\\u00e9') is not a valid integer.\"}")
+            );
+        }
+
+        @Test
+        public void testJsonFields() {
+            var buffer = new OutputBuffer(4);
+            OutputFormat.JSON.write(Scenarios.tryParse("sub --right 2.0"), buffer);
+            OutputFormat.JSON.write(Scenarios.tryParse("fact 25"), buffer);
+            OutputFormat.JSON.write(Scenarios.tryParse("add -2147483648 2147483647"), buffer);
+            OutputFormat.JSON.write(Scenarios.tryParse("calc \"-1/0\""), buffer);
+            var lines = new String(buffer.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+            Assertions.assertTrue(lines[0].contains("\"left\":null") && lines[0].contains("\"right\":2.0"), lines[0]);
+            Assertions.assertTrue(lines[1].contains("\"factorial\":15511210043330985984000000"), lines[1]);
+            Assertions.assertTrue(lines[2].contains("\"left\":-2147483648") && lines[2].contains("\"right\":2147483647"), lines[2]);
+            Assertions.assertTrue(lines[3].contains("\"value\":\"-Infinity\""), lines[3]);
+        }
+
+        @Test
+        public void testBinary() {
+            var buffer = new OutputBuffer(4);
+            OutputFormat.BINARY.write(Scenarios.tryParse("sqrt 4"), buffer);
+            OutputFormat.BINARY.write(Scenarios.tryParse("div 5 0"), buffer);
+            var message = "Divisor cannot be zero.";
+            var expected = ByteBuffer.allocate(128)
+                    .putInt(14).put((byte) 0).put((byte) 1).put((byte) 6).put("number".getBytes(StandardCharsets.US_ASCII))
+                    .put((byte) OutputFormat.TAG_INT).putInt(4)
+                    .putInt(2 + 16 + 4 + message.length()).put((byte) 1).put((byte) 16).put("DIVISION_BY_ZERO".getBytes(StandardCharsets.US_ASCII))
+                    .putInt(message.length()).put(message.getBytes(StandardCharsets.US_ASCII))
+                    .flip();
+            var bytes = new byte[expected.remaining()];
+            expected.get(bytes);
+            Assertions.assertArrayEquals(bytes, buffer.toByteArray());
+        }
+
+        @Test
+        public void testTextMatchesToString() {
+            var buffer = new OutputBuffer(4);
+            OutputFormat.TEXT.write(Scenarios.tryParse("add 1 2"), buffer);
+            OutputFormat.TEXT.write(Scenarios.tryParse("add 1"), buffer);
+            Assertions.assertEquals(Scenarios.parse("add 1 2") + "\nUnexpected exception: java.lang.IllegalArgumentException, "
+                    + Scenarios.tryParse("add 1").message() + "\n", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        }
+
+    }
+
+    @Nested
+    class Server {
+
+        @Test
+        public void testPipelinedRequests() throws Exception {
+            try (var server = ScenarioServer.start(new InetSocketAddress("127.0.0.1", 0), 1);
+                 var socket = new Socket()) {
+                socket.connect(server.address());
+                var writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                writer.print("add 1 2\ndiv 5 0\nsqrt 4\n");
+                writer.flush();
+                var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Assertions.assertEquals("OK " + Map.of("left", 1, "right", 2), reader.readLine());
+                Assertions.assertEquals("ERROR DIVISION_BY_ZERO Divisor cannot be zero.", reader.readLine());
+                Assertions.assertEquals("OK {number=4}", reader.readLine());
+
+                try (var rejected = new Socket()) {
+                    rejected.connect(server.address());
+                    var line = new BufferedReader(new InputStreamReader(rejected.getInputStream(), StandardCharsets.UTF_8)).readLine();
+                    Assertions.assertTrue(line.startsWith("ERROR TOO_MANY_CONNECTIONS"), line);
+                }
+            }
+        }
+
+        @Test
+        public void testLineTooLong() throws Exception {
+            try (var server = ScenarioServer.start(new InetSocketAddress("127.0.0.1", 0), 1);
+                 var socket = new Socket()) {
+                socket.connect(server.address());
+                var writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                writer.print("add 1 2\r\nsqrt 4\radd 1 " + "2".repeat(2 * ScenarioServer.MAX_LINE));
+                writer.flush();
+                var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Assertions.assertEquals("OK " + Map.of("left", 1, "right", 2), reader.readLine());
+                Assertions.assertEquals("OK {number=4}", reader.readLine());
+                Assertions.assertEquals("ERROR LINE_TOO_LONG Line is longer than " + ScenarioServer.MAX_LINE + " characters.", reader.readLine());
+                Assertions.assertNull(reader.readLine());
+            }
+        }
+
+    }
+
+    @Nested
+    class Batch {
+
+        @Test
+        public void testOrderAndFailures() {
+            var commands = new ArrayList<String>();
+            for (int i = 0; i < 5000; i++) {
+                commands.add(i % 3 == 0 ? "sqrt -" + i : "sqrt " + i);
+            }
+            var results = Scenarios.parseBatch(commands);
+            Assertions.assertEquals(commands.size(), results.size());
+            for (int i = 0; i < commands.size(); i++) {
+                if (i % 3 == 0 && i != 0) {
+                    Assertions.assertFalse(results.get(i).isSuccess(), commands.get(i));
+                    Assertions.assertEquals(ErrorCode.OUT_OF_RANGE, results.get(i).errorCode());
+                } else {
+                    Assertions.assertEquals(Map.of("number", i), results.get(i).value());
+                }
+            }
+        }
+
+        @Test
+        public void testMappedFile(@TempDir Path directory) throws Exception {
+            var input = new StringBuilder();
+            var expected = new StringBuilder();
+            for (int i = 0; i < 20000; i++) {
+                var command = i % 7 == 0 ? "div " + i + " 0" : "add " + i + " " + (i % 3 == 0 ? "1\r" : "2");
+                input.append(command).append('\n');
+                var result = Scenarios.tryParse(command.strip());
+                expected.append(result.isSuccess() ? result.value() : "Unexpected exception: java.lang.IllegalArgumentException, " + result.message()).append('\n');
+            }
+            input.append("fact 5");
+            expected.append(Map.of("number", 5, "factorial", 120L)).append('\n');
+            var file = Files.writeString(directory.resolve("commands.txt"), input, StandardCharsets.US_ASCII);
+
+            var output = new ByteArrayOutputStream();
+            var summary = FileProcessor.process(file, Channels.newChannel(output), 4, OutputFormat.TEXT, 4096);
+            Assertions.assertEquals(expected.toString(), output.toString(StandardCharsets.UTF_8));
+            Assertions.assertEquals(20001, summary.lines());
+            Assertions.assertEquals(20000 / 7 + 1, summary.errors());
+        }
+
+        @Test
+        public void testMappedFileMatchesBatch(@TempDir Path directory) throws Exception {
+            var commands = List.of("add \u0663 1", "add 1 2", "calc \"x * 2\" x=\u0663", "sqrt \u00e9", "date 2024-01-01", "exit", "stats", "add 4 5");
+            var file = Files.write(directory.resolve("commands.txt"), commands, StandardCharsets.UTF_8);
+
+            // Batch mode reads stdin as UTF-8 lines and writes each result in the output format.
+            var expected = new OutputBuffer(256);
+            try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    OutputFormat.TEXT.write(Scenarios.tryParse(line), expected);
+                }
+            }
+            var output = new ByteArrayOutputStream();
+            FileProcessor.process(file, Channels.newChannel(output), 2, OutputFormat.TEXT, 16);
+            Assertions.assertEquals(new String(expected.toByteArray(), StandardCharsets.UTF_8), output.toString(StandardCharsets.UTF_8));
+            Assertions.assertTrue(output.toString(StandardCharsets.UTF_8).startsWith(Map.of("left", 3, "right", 1) + "\n"));
+        }
+
+        @Test
+        public void testMappedFileLongLines(@TempDir Path directory) throws Exception {
+            var tooLong = "add 1 " + "2".repeat(FileProcessor.MAX_LINE);
+            var input = "add 1 2\n" + tooLong + "\n" + "3".repeat(5 * FileProcessor.MAX_LINE) + "\r\nfact 5\n" + tooLong;
+            var file = Files.writeString(directory.resolve("commands.txt"), input, StandardCharsets.US_ASCII);
+            var rejected = "Unexpected exception: java.lang.IllegalArgumentException, Line is longer than " + FileProcessor.MAX_LINE + " bytes.\n";
+            var expected = Map.of("left", 1, "right", 2) + "\n" + rejected + rejected + Map.of("number", 5, "factorial", 120L) + "\n" + rejected;
+
+            for (int chunkSize : new int[] {16, 4096, 1 << 20}) {
+                var output = new ByteArrayOutputStream();
+                var summary = FileProcessor.process(file, Channels.newChannel(output), 2, OutputFormat.TEXT, chunkSize);
+                Assertions.assertEquals(expected, output.toString(StandardCharsets.UTF_8), "chunk size " + chunkSize);
+                Assertions.assertEquals(5, summary.lines());
+                Assertions.assertEquals(3, summary.errors());
+            }
+        }
+
+        @Test
+        public void testStream() {
+            var results = Scenarios.parseAll(Stream.of("add 1 2", "add 1", "fact 5"));
+            Assertions.assertEquals(Map.of("left", 1, "right", 2), results.get(0).value());
+            Assertions.assertFalse(results.get(1).isSuccess());
+            Assertions.assertEquals(Map.of("number", 5, "factorial", 120L), results.get(2).value());
+        }
+
+    }
+
     private static void test(String command, Object expected) {
         if (expected != null) {
             var result = Scenarios.parse(command);
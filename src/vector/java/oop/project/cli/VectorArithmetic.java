@@ -0,0 +1,75 @@
+package oop.project.cli;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@code jdk.incubator.vector} kernels behind {@link BulkArithmetic}.
+ * This class lives in its own source set, the only one compiled with the
+ * incubator module, and {@link BulkArithmetic} loads it reflectively, since
+ * it cannot be linked without that module.
+ */
+final class VectorArithmetic implements BulkArithmetic.Kernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    VectorArithmetic() {}
+
+    @Override
+    public void apply(BulkArithmetic.Operation operation, double[] left, double[] right, double[] result, int length) {
+        // Each operation gets its own loop so the lane operation is a constant
+        // the JIT can turn into a single vector instruction.
+        switch (operation) {
+            case ADD -> add(left, right, result, length);
+            case SUB -> sub(left, right, result, length);
+            case MUL -> mul(left, right, result, length);
+            case DIV -> div(left, right, result, length);
+        }
+    }
+
+    private static void add(double[] left, double[] right, double[] result, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, left, i).add(DoubleVector.fromArray(SPECIES, right, i)).intoArray(result, i);
+        }
+        tail(VectorOperators.ADD, left, right, result, i, length);
+    }
+
+    private static void sub(double[] left, double[] right, double[] result, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, left, i).sub(DoubleVector.fromArray(SPECIES, right, i)).intoArray(result, i);
+        }
+        tail(VectorOperators.SUB, left, right, result, i, length);
+    }
+
+    private static void mul(double[] left, double[] right, double[] result, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, left, i).mul(DoubleVector.fromArray(SPECIES, right, i)).intoArray(result, i);
+        }
+        tail(VectorOperators.MUL, left, right, result, i, length);
+    }
+
+    private static void div(double[] left, double[] right, double[] result, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, left, i).div(DoubleVector.fromArray(SPECIES, right, i)).intoArray(result, i);
+        }
+        tail(VectorOperators.DIV, left, right, result, i, length);
+    }
+
+    /**
+     * Processes the last partial vector with a mask.
+     */
+    private static void tail(VectorOperators.Binary operator, double[] left, double[] right, double[] result, int from, int length) {
+        if (from < length) {
+            var mask = SPECIES.indexInRange(from, length);
+            var a = DoubleVector.fromArray(SPECIES, left, from, mask);
+            var b = DoubleVector.fromArray(SPECIES, right, from, mask);
+            a.lanewise(operator, b).intoArray(result, from, mask);
+        }
+    }
+
+}